@@ -0,0 +1,106 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Measures the accessors of a parse result and of the mutable
+ * options.
+ */
+class AccessorBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Accessors");
+        final Options options = Fixtures.calc();
+        options.parse (new String[] { "-v", "-a", "1", "2", "--ordinals" });
+        final Result result = options.compile().parse
+            (new String[] { "-v", "-a", "1", "2", "--ordinals" });
+        // Vary the looked up options to keep the JIT from hoisting the
+        // lookups out of the loops.
+        final char[]   flags = { 'a', 'v', 'q', 'x' };
+        final String[] names = { "add", "verbose", "multiply", "ordinals" };
+
+        Bench.run ("result isset(char)", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        if (result.isset(flags[i & 3])) n++;
+                    return n;
+                }});
+        Bench.run ("result isset(String)", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        if (result.isset(names[i & 3])) n++;
+                    return n;
+                }});
+        Bench.run ("result get(char, int)", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += result.get('a', i & 1).length();
+                    return n;
+                }});
+        Bench.run ("result get(String, int) default", 1000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += result.get("ordinals", 2).length();
+                    return n;
+                }});
+        final Result numbers = options.compile().parse
+            (new String[] { "-a", "12345", "-67890", "-q3" });
+        Bench.run ("result get(char, int) and Integer.parseInt", 1000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += Integer.parseInt (numbers.get('a', i & 1));
+                    return n;
+                }});
+        Bench.run ("result get_int(char, int)", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += numbers.get_int('a', i & 1);
+                    return n;
+                }});
+        Bench.run ("options isset(char)", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        if (options.isset(flags[i & 3])) n++;
+                    return n;
+                }});
+        Bench.run ("options get(char, int)", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += options.get('a', i & 1).length();
+                    return n;
+                }});
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares parsing many argument lists one after the other with
+ * parsing them as a parallel batch.
+ */
+class BatchBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Batch (" + Runtime.getRuntime().availableProcessors()
+                      + " processors)");
+        final Spec spec = Fixtures.calc().compile();
+        final List<String[]> lines = new ArrayList<String[]>();
+        for (int i = 0; i < 100000; i++)
+            lines.add (i % 100 == 99
+                       ? new String[] { "--unknown", "x" }
+                       : Fixtures.calc_arguments(1, i % 5));
+
+        Bench.run ("sequential 100000 lines", 1, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        for (String[] line : lines)
+                            try
+                            {
+                                n += spec.parse(line).positionals().size();
+                            }
+                            catch (InvalidOptionException e)
+                            {
+                                n++;
+                            }
+                    return n;
+                }});
+        Bench.run ("parse_batch 100000 lines", 1, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse_batch(lines).failed();
+                    return n;
+                }});
+    }
+}
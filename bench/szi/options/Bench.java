@@ -0,0 +1,99 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * A minimal benchmark harness.  Each case is warmed up and then
+ * measured several times.  The best time per operation, the number of
+ * bytes allocated per operation by the current thread, the allocation
+ * rate and the number of garbage collections during the measurement
+ * are printed.
+ */
+final class Bench
+{
+    interface Body
+    {
+        /**
+         * Runs the benchmarked operation the given number of times and
+         * returns a value depending on the results, to prevent the JIT
+         * from removing the work.
+         */
+        long run (int ops);
+    }
+
+    static final int WARMUP_ROUNDS  = 10;
+    static final int MEASURE_ROUNDS = 10;
+
+    static long sink = 0;
+
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    private static long allocated ()
+    {
+        return threads.getThreadAllocatedBytes
+            (Thread.currentThread().getId());
+    }
+
+    private static long collections ()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean gc :
+                 ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    static void header (String title)
+    {
+        System.out.println();
+        System.out.println(title);
+    }
+
+    static void run (String name, int ops, Body body)
+    {
+        for (int r = 0; r < WARMUP_ROUNDS; r++)
+            sink += body.run(ops);
+        long best  = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+        long time  = 0;
+        long total = 0;
+        long gc0   = collections();
+        for (int r = 0; r < MEASURE_ROUNDS; r++)
+        {
+            long a0 = allocated();
+            long t0 = System.nanoTime();
+            sink += body.run(ops);
+            long t1 = System.nanoTime();
+            long a1 = allocated();
+            best  = Math.min(best, t1 - t0);
+            bytes = Math.min(bytes, a1 - a0);
+            time  += t1 - t0;
+            total += a1 - a0;
+        }
+        long gcs = collections() - gc0;
+        System.out.printf("%-40s %12.2f ns/op %12.1f B/op %10.1f MB/s %4d gc%n",
+                          name, (double)best / ops, (double)bytes / ops,
+                          total * 1e3 / time, gcs);
+    }
+}
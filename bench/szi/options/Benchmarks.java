@@ -0,0 +1,47 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Runs all benchmarks.
+ */
+class Benchmarks
+{
+    public static void main (String[] args)
+    {
+        LookupBench.run();
+        SuggestBench.run();
+        ParseBench.run();
+        AccessorBench.run();
+        BindBench.run();
+        BatchBench.run();
+        UsageBench.run();
+        CommandBench.run();
+        HandlerBench.run();
+        RepeatBench.run();
+        LineBench.run();
+        CompletionBench.run();
+        SourceBench.run();
+        ReloadBench.run();
+        ValidateBench.run();
+        CacheBench.run();
+        MetricsBench.run();
+    }
+}
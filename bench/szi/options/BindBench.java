@@ -0,0 +1,71 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Compares binding options to an annotated object with assigning the
+ * fields by hand.
+ */
+class BindBench
+{
+    static class Config
+    {
+        @Opt(flag='v', description="Verbose output.")
+        boolean verbose;
+        @Opt(flag='l', name="level", description="Level.", defaults={"3"})
+        int level;
+        @Opt(flag='r', name="ratio", description="Ratio.")
+        double ratio;
+        @Opt(flag='n', name="name", description="Name.")
+        String name;
+    }
+
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Binding");
+        final Result result = Binder.spec(Config.class).parse
+            (new String[] { "-v", "-l", "7", "--ratio", "0.5", "-nfoo" });
+        final Config config = new Config();
+
+        Bench.run ("bind by hand with typed accessors", 1000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    for (int i = 0; i < ops; i++)
+                    {
+                        config.verbose = result.isset('v');
+                        config.level   = result.get_int('l');
+                        config.ratio   = result.get_double('r');
+                        config.name    = result.get('n');
+                    }
+                    return config.level;
+                }});
+        Bench.run ("bind with Binder", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    for (int i = 0; i < ops; i++)
+                        Binder.bind (config, result);
+                    return config.level;
+                }});
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Compares the startup work of defining and compiling a spec and
+ * parsing a short command line with loading the spec from a
+ * {@link SpecCache} file and parsing the same line.
+ */
+class CacheBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final String[] ARGUMENTS = {
+        "-a", "0", "--option-1", "--option-3", "x", "file" };
+
+    static void run ()
+    {
+        Bench.header ("Spec cache");
+        for (final int count : new int[] { 40, 400, 4000 })
+        {
+            final Path file;
+            try
+            {
+                File temporary = File.createTempFile ("szi-options", ".spec");
+                temporary.deleteOnExit();
+                file = temporary.toPath();
+                SpecCache.write (Fixtures.many(count).compile(), file, 1);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException (e);
+            }
+            int ops = Math.max (10, 400000 / count);
+            Bench.run ("define and compile " + count + " options", ops,
+                       new Bench.Body() {
+                    public long run (int ops) {
+                        long n = 0;
+                        for (int i = 0; i < ops; i++)
+                            n += Fixtures.many(count).compile()
+                                .parse(ARGUMENTS).positionals().size();
+                        return n;
+                    }});
+            Bench.run ("load " + count + " options from cache", ops,
+                       new Bench.Body() {
+                    public long run (int ops) {
+                        long n = 0;
+                        for (int i = 0; i < ops; i++)
+                            n += SpecCache.read(file, 1)
+                                .parse(ARGUMENTS).positionals().size();
+                        return n;
+                    }});
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Measures the startup of a tool with many commands: defining the
+ * commands, compiling the global spec and parsing one command line.
+ * With lazy commands only the options of the used command are built.
+ * The eager case builds the specs of all commands first, like a tool
+ * defining every command up front.
+ */
+class CommandBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final int COMMANDS = 300;
+
+    static final String[] ARGUMENTS = {
+        "--verbose", "command-150", "--option-3", "x", "--option-7", "file" };
+
+    static Options global ()
+    {
+        return new Options()
+            .about ("Tool with " + COMMANDS + " commands")
+            .usage ("tool [OPTION]... COMMAND [ARG]...")
+            .option ('v', "verbose", "Verbose output.");
+    }
+
+    static void run ()
+    {
+        Bench.header ("Commands");
+        Bench.run ("lazy commands: define and parse", 2000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Options options = global();
+                        for (int c = 0; c < COMMANDS; c++)
+                            options.command ("command-" + c, "Command " + c,
+                                             () -> Fixtures.many(20));
+                        n += options.compile().parse(ARGUMENTS)
+                            .command_result().positionals().size();
+                    }
+                    return n;
+                }});
+        Bench.run ("eager commands: define and parse", 20,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Options options = global();
+                        for (int c = 0; c < COMMANDS; c++)
+                        {
+                            final Options command = Fixtures.many(20);
+                            command.compile();
+                            options.command ("command-" + c, "Command " + c,
+                                             () -> command);
+                        }
+                        n += options.compile().parse(ARGUMENTS)
+                            .command_result().positionals().size();
+                    }
+                    return n;
+                }});
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures shell completion: completing in the process, a query to a
+ * running completion server like the scripts send it and generating
+ * the scripts.
+ */
+class CompletionBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final List<String> WORDS =
+        Arrays.asList("tool", "--option-3", "x", "command-1", "--option-1");
+
+    static final byte[] QUERY =
+        "4\0005\000tool\000--option-3\000x\000command-1\000--option-1\000"
+        .getBytes(StandardCharsets.UTF_8);
+
+    static Spec spec ()
+    {
+        Options options = Fixtures.many(400);
+        for (int c = 0; c < 20; c++)
+            options.command ("command-" + c, "Command " + c,
+                             () -> Fixtures.many(40));
+        return options.compile();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Completion");
+        final Spec spec = spec();
+        Bench.run ("complete in process", 200000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += Completion.complete(spec, WORDS, 4).size();
+                    return n;
+                }});
+        final Path socket;
+        try
+        {
+            socket = Files.createTempDirectory ("szi-options")
+                .resolve ("tool.sock");
+            socket.getParent().toFile().deleteOnExit();
+            try (CompletionServer server = new CompletionServer(spec, socket))
+            {
+                server.start ();
+                Bench.run ("query the completion server", 5000,
+                           new Bench.Body() {
+                        public long run (int ops) {
+                            long n = 0;
+                            for (int i = 0; i < ops; i++)
+                                n += query (socket);
+                            return n;
+                        }});
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException (e);
+        }
+        Bench.run ("generate bash script", 2000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += Completion.bash(spec, "tool", socket).length();
+                    return n;
+                }});
+    }
+
+    /** Sends the query and returns the size of the answer. */
+    static long query (Path socket)
+    {
+        try (SocketChannel channel =
+                 SocketChannel.open(StandardProtocolFamily.UNIX))
+        {
+            channel.connect (UnixDomainSocketAddress.of(socket));
+            channel.write (ByteBuffer.wrap(QUERY));
+            ByteBuffer answer = ByteBuffer.allocate(4096);
+            long n = 0;
+            int read;
+            while ((read = channel.read(answer)) >= 0)
+            {
+                n += read;
+                answer.clear ();
+            }
+            return n;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException (e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Option specs and argument lists shared by the benchmarks.
+ */
+final class Fixtures
+{
+    /**
+     * The options of the example calculator plus some flags without
+     * values for bundling.
+     */
+    static Options calc ()
+    {
+        return new Options()
+            .about  ("Calc version 1.0")
+            .usage  ("calc OPTION A [B]")
+            .option ("help", "Display usage.")
+            .option ('a', "add", "Addition: A + B", 2)
+            .option ('s', "subtract", "Subtraction: A - B", 2)
+            .option ('m', "multiply", "Multiplication: A * B", 2)
+            .option ('d', "divide", "Division: A / B", 2)
+            .option ('q', "square", "Square: A^2", 1)
+            .option ('o', "output", "Output level.", 1, "0")
+            .option ('v', "verbose", "Verbose output.")
+            .option ('x', "Extended mode.")
+            .option ('y', "Yes to all.")
+            .option ("eight", "8 arguments.", 8)
+            .option ("ordinals", "Three ordinals.", "1st", "2nd", "3rd")
+            ;
+    }
+
+    /**
+     * A spec with the given number of long options, every fourth
+     * option with a flag and every third option with a value.
+     */
+    static Options many (int count)
+    {
+        Options options = new Options()
+            .about ("Many options")
+            .usage ("many [OPTION]... FILE...");
+        String flags = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        for (int i = 0; i < count; i++)
+        {
+            Character flag = i % 4 == 0 && i / 4 < flags.length()
+                ? flags.charAt(i / 4) : null;
+            if (i % 3 == 0)
+                options.option (flag, "option-" + i, "Option number " + i,
+                                1, String.valueOf(i));
+            else
+                options.option (flag, "option-" + i, "Option number " + i, 0);
+        }
+        return options;
+    }
+
+    /**
+     * Returns distinct long names made of two random syllable words
+     * joined by a hyphen, like real option names.  The names are the
+     * same on every run.
+     */
+    static String[] names (int count)
+    {
+        Random random = new Random (count);
+        Set<String> names = new LinkedHashSet<String>();
+        while (names.size() < count)
+            names.add (word(random) + "-" + word(random));
+        return names.toArray(new String[0]);
+    }
+
+    private static String word (Random random)
+    {
+        String consonants = "bcdfghklmnprstvz";
+        String vowels     = "aeiou";
+        StringBuilder word = new StringBuilder();
+        for (int n = 2 + random.nextInt(3); n > 0; n--)
+            word.append (consonants.charAt(random.nextInt(16)))
+                .append (vowels.charAt(random.nextInt(5)));
+        return word.toString();
+    }
+
+    /**
+     * Returns the name with one typo: a character replaced, dropped or
+     * two characters swapped.
+     */
+    static String typo (String name, Random random)
+    {
+        StringBuilder typo = new StringBuilder (name);
+        int i = random.nextInt(name.length() - 1);
+        switch (random.nextInt(3))
+        {
+        case 0:  typo.setCharAt (i, 'x'); break;
+        case 1:  typo.deleteCharAt (i); break;
+        default:
+            typo.setCharAt (i, name.charAt(i + 1));
+            typo.setCharAt (i + 1, name.charAt(i));
+        }
+        return typo.toString();
+    }
+
+    /** A short argument list for the calc spec. */
+    static final String[] SMALL = { "-vx", "--add", "1", "2", "file" };
+
+    /**
+     * Mixed short, long and bundled options with attached and
+     * separate values.
+     */
+    static final String[] MIXED = {
+        "-vxy", "-o1", "-q", "3", "--verbose", "--output", "2",
+        "--ordinals", "a", "b", "c", "-xo", "4", "input", "--", "-rest" };
+
+    /**
+     * An argument list for the calc spec with the mixed options
+     * repeated and the given number of positional arguments.
+     */
+    static String[] calc_arguments (int repeat, int positionals)
+    {
+        List<String> list = new ArrayList<String>();
+        for (int r = 0; r < repeat; r++)
+            for (int i = 0; i < MIXED.length - 2; i++)
+                list.add (MIXED[i]);
+        for (int p = 0; p < positionals; p++)
+            list.add ("/var/data/input/file-" + p + ".dat");
+        return list.toArray(new String[0]);
+    }
+}
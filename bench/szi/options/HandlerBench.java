@@ -0,0 +1,82 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Measures reading the options of the calculator after the parse by
+ * polling the result compared with handlers called by the parse.
+ */
+class HandlerBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final String[] ARGUMENTS = {
+        "-v", "--add", "1", "2", "-o", "3", "file" };
+
+    static long sum = 0;
+
+    static Spec handled (boolean defer)
+    {
+        Options options = Fixtures.calc()
+            .on ("verbose", () -> sum++)
+            .on ("add", values -> sum += values.length)
+            .on_int ("output", value -> sum += value)
+            .on_int ("square", value -> sum += value);
+        return (defer ? options.defer_handlers() : options).compile();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Handlers");
+        final Spec spec = Fixtures.calc().compile();
+        Bench.run ("parse and poll isset/get", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Result result = spec.parse (ARGUMENTS);
+                        if (result.isset('v'))
+                            n++;
+                        if (result.isset("add"))
+                            n += 2;
+                        n += result.get_int ("output");
+                        if (result.isset("square"))
+                            n += result.get_int ("square");
+                    }
+                    return n;
+                }});
+        handlers ("parse with handlers", handled (false));
+        handlers ("parse with deferred handlers", handled (true));
+    }
+
+    static void handlers (String name, final Spec spec)
+    {
+        Bench.run (name, 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    sum = 0;
+                    for (int i = 0; i < ops; i++)
+                        spec.parse (ARGUMENTS);
+                    return sum;
+                }});
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Measures parsing whole command lines: split by a regular expression
+ * and parsed as an array compared with parsing the line directly.
+ */
+class LineBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final String LINE =
+        "-vx --add 1 2 --output 3 -q 4 --ordinals a b c file1 file2";
+
+    static final String QUOTED =
+        "-vx --add 1 2 --output '3' -q 4 \"file 1\" file\\ 2";
+
+    static void run ()
+    {
+        Bench.header ("Command lines");
+        final Spec spec = Fixtures.calc().compile();
+        Bench.run ("split by regex, parse array", 200000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(LINE.trim().split("\\s+"))
+                            .positionals().size();
+                    return n;
+                }});
+        Bench.run ("parse line", 200000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(LINE).positionals().size();
+                    return n;
+                }});
+        Bench.run ("parse line, read all values", 200000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Result result = spec.parse (LINE);
+                        n += result.get_int("add", 1) + result.get_int('q')
+                            + result.get("ordinals", 2).length()
+                            + result.arguments().length;
+                    }
+                    return n;
+                }});
+        Bench.run ("parse quoted line", 200000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(QUOTED).arguments()[1].length();
+                    return n;
+                }});
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the lookup of short options in the char indexed table of
+ * {@link Spec} and of long options in the trie of long names with the
+ * lookup in a string keyed hash map, which was used before.
+ */
+class LookupBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Option lookup");
+        Options options = new Options();
+        for (char c = 'a'; c <= 'z'; c++)
+            options.option (c, "Option " + c, 1);
+        for (char c = 'A'; c <= 'Z'; c++)
+            options.option (c, "Option " + c);
+        options.option ('\u00e4', "Non ASCII option");
+        final Spec spec = options.compile();
+
+        final Map<String,Option> hash = new HashMap<String,Option>();
+        for (Option option : spec.options)
+            hash.put (option.flag.toString(), option);
+
+        final char[] ascii = "abcxyzABCXYZ".toCharArray();
+        final char[] wide  = { '\u00e4' };
+
+        Bench.run ("short lookup: hash map", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += hash.get(String.valueOf(ascii[i % ascii.length]))
+                            .ordinal;
+                    return n;
+                }});
+        Bench.run ("short lookup: table", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.get_option(ascii[i % ascii.length])
+                            .ordinal;
+                    return n;
+                }});
+        Bench.run ("short lookup: non ASCII fallback", 1000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.get_option(wide[0]).ordinal;
+                    return n;
+                }});
+
+        Options many = new Options();
+        for (int i = 0; i < 500; i++)
+            many.option ("long-option-number-" + i, "Option " + i);
+        final Spec many_spec = many.compile();
+        final Map<String,Option> options_hash = new HashMap<String,Option>();
+        for (Option option : many_spec.options)
+            options_hash.put (option.name, option);
+        final String[] arguments = {
+            "--long-option-number-0", "--long-option-number-250",
+            "--long-option-number-499", "--long-option-number-42" };
+
+        Bench.run ("long lookup: substring and hash map", 1000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += options_hash.get
+                            (arguments[i % arguments.length].substring(2))
+                            .ordinal;
+                    return n;
+                }});
+        Bench.run ("long lookup: trie", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += many_spec.get_long_option
+                            (arguments[i % arguments.length]).ordinal;
+                    return n;
+                }});
+    }
+}
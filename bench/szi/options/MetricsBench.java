@@ -0,0 +1,55 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import jdk.jfr.Recording;
+
+/**
+ * Measures the cost of the instrumentation: parsing without metrics
+ * and events, with metrics enabled and with the flight recorder
+ * events enabled.
+ */
+class MetricsBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Metrics");
+        Spec plain = Fixtures.calc().compile();
+        ParseBench.parse ("parse small, not instrumented", 200000, plain,
+                          Fixtures.SMALL);
+        Spec counted = Fixtures.calc().compile();
+        counted.enable_metrics();
+        ParseBench.parse ("parse small, metrics enabled", 200000, counted,
+                          Fixtures.SMALL);
+        try (Recording recording = new Recording())
+        {
+            recording.enable ("szi.options.Parse");
+            recording.enable ("szi.options.Check");
+            recording.start();
+            ParseBench.parse ("parse small, events enabled", 200000, plain,
+                              Fixtures.SMALL);
+        }
+    }
+}
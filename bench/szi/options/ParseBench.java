@@ -0,0 +1,159 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.function.Consumer;
+
+/**
+ * Measures parsing argument lists of different sizes, invalid argument
+ * lists and the check for missing values.
+ */
+class ParseBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void parse (String name, int ops,
+                       final Spec spec, final String[] arguments)
+    {
+        Bench.run (name + " (" + arguments.length + " args)", ops,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(arguments).positionals().size();
+                    return n;
+                }});
+    }
+
+    static void invalid (int ops, final Spec spec, final String[] arguments)
+    {
+        Bench.run ("parse invalid, catch exception", ops, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        try
+                        {
+                            spec.parse (arguments);
+                        }
+                        catch (InvalidOptionException e)
+                        {
+                            n += e.error().index();
+                        }
+                    return n;
+                }});
+        Bench.run ("try_parse invalid", ops, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.try_parse(arguments).errors().size();
+                    return n;
+                }});
+    }
+
+    static void response_file (final Spec spec)
+    {
+        final String[] arguments;
+        try
+        {
+            File file = File.createTempFile ("szi-options", ".args");
+            file.deleteOnExit();
+            try (PrintWriter out = new PrintWriter (file, "UTF-8"))
+            {
+                for (String argument : Fixtures.calc_arguments(1000, 100000))
+                    out.println ("'" + argument + "'");
+            }
+            arguments = new String[] { "@" + file.getPath() };
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException (e);
+        }
+        Bench.run ("parse huge response file", 20, new Bench.Body() {
+                public long run (int ops) {
+                    final long[] n = { 0 };
+                    for (int i = 0; i < ops; i++)
+                        spec.parse (ResponseFiles.expand (arguments),
+                                    new Consumer<String>() {
+                                        public void accept (String s) {
+                                            n[0] += s.length();
+                                        }});
+                    return n[0];
+                }});
+    }
+
+    static void check (String name, final Spec spec, String[] arguments)
+    {
+        final Result result = spec.parse (arguments);
+        Bench.run (name, 200000, new Bench.Body() {
+                public long run (int ops) {
+                    for (int i = 0; i < ops; i++)
+                        spec.check (result);
+                    return ops;
+                }});
+    }
+
+    static void run ()
+    {
+        Bench.header ("Parse");
+        Spec calc = Fixtures.calc().compile();
+        parse ("parse small", 200000, calc, Fixtures.SMALL);
+        parse ("parse mixed bundled", 200000, calc, Fixtures.MIXED);
+        parse ("parse medium", 20000, calc,
+               Fixtures.calc_arguments(5, 50));
+        parse ("parse huge", 20, calc,
+               Fixtures.calc_arguments(1000, 100000));
+
+        Spec many = Fixtures.many(400).compile();
+        parse ("parse 400 options", 100000, many, new String[] {
+                "-a", "0", "--option-1", "--option-399", "x",
+                "--option-200", "file" });
+
+        invalid (200000, calc, new String[] {
+                "-a", "1", "-b", "2", "--undefined", "-a" });
+
+        response_file (calc);
+
+        Bench.header ("Check");
+        String[] two = { "--option-3", "x", "--option-7" };
+        check ("check 400 options, 2 set", many, two);
+        check ("check 4000 options, 2 set",
+               Fixtures.many(4000).compile(), two);
+        Spec grouped = Fixtures.many(4000)
+            .exclusive ("mode", "option-1", "option-7", "option-3999")
+            .one_of ("input", "option-3", "option-2000")
+            .requires ("option-7", "option-3")
+            .compile();
+        check ("check 4000 options, 3 groups", grouped, two);
+        final Result result = grouped.parse (two);
+        Bench.run ("which_of", 2000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += result.which_of ("mode");
+                    return n;
+                }});
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures reading options from a reloadable snapshot compared with a
+ * plain parse result, and reloading the file.
+ */
+class ReloadBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Reloadable options");
+        final Reloadable reloadable;
+        try
+        {
+            File temporary = File.createTempFile ("szi-options", ".args");
+            temporary.deleteOnExit();
+            Path file = temporary.toPath();
+            Files.writeString (file, String.join ("\n",
+                                                  LineBench.LINE.split(" ")));
+            reloadable = new Reloadable (Fixtures.calc().compile(), file);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException (e);
+        }
+        final Result result = reloadable.snapshot();
+        Bench.run ("read 2 values from a result", 10000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += result.get_int("add", 1) + result.get_int('q');
+                    return n;
+                }});
+        Bench.run ("read 2 values from the snapshot", 10000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Result snapshot = reloadable.snapshot();
+                        n += snapshot.get_int("add", 1)
+                            + snapshot.get_int('q');
+                    }
+                    return n;
+                }});
+        Bench.run ("reload the file", 20000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        reloadable.reload ();
+                        n += reloadable.snapshot().positionals().size();
+                    }
+                    return n;
+                }});
+    }
+}
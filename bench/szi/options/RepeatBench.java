@@ -0,0 +1,81 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Measures repeatable and variadic options with many occurrences and
+ * values: parsing them and reading all values.
+ */
+class RepeatBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final int OCCURRENCES = 100000;
+
+    static void run ()
+    {
+        Bench.header ("Repeatable options");
+        final Spec spec = new Options()
+            .repeatable ('I', "include", "Include directory.", 1)
+            .counter ('v', "verbose", "More verbose output.")
+            .variadic ('f', "files", "Input files.")
+            .compile();
+
+        final String[] includes = new String[2 * OCCURRENCES];
+        for (int i = 0; i < OCCURRENCES; i++)
+        {
+            includes[2 * i]     = "-I";
+            includes[2 * i + 1] = "/usr/include/" + i;
+        }
+        Bench.run ("parse " + OCCURRENCES + " -I DIR, get_all", 20,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(includes).get_all('I').length;
+                    return n;
+                }});
+
+        final String[] files = new String[OCCURRENCES + 1];
+        files[0] = "--files";
+        for (int i = 1; i <= OCCURRENCES; i++)
+            files[i] = "file-" + i;
+        Bench.run ("parse --files with " + OCCURRENCES + " values, get_all",
+                   20, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(files).get_all("files").length;
+                    return n;
+                }});
+
+        final String[] verbose = { "-vvv", "-v", "-I", "dir" };
+        Bench.run ("parse -vvv -v -I DIR, count", 200000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(verbose).count('v');
+                    return n;
+                }});
+    }
+}
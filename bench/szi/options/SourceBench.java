@@ -0,0 +1,138 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Measures values read from the environment and a properties file.
+ * The sources are read lazily and only for the values asked for,
+ * compared with reading all sources for every parse.
+ */
+class SourceBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final int COUNT = 400;
+
+    static final String[] ARGUMENTS = { "--option-3", "x", "file" };
+
+    static void run ()
+    {
+        Bench.header ("Value sources");
+        final Path file;
+        try
+        {
+            File temporary = File.createTempFile ("szi-options", ".properties");
+            temporary.deleteOnExit();
+            file = temporary.toPath();
+            StringBuilder properties = new StringBuilder();
+            for (int i = 0; i < COUNT; i += 3)
+                properties.append("option-").append(i).append(" = ")
+                    .append(i * 2).append('\n');
+            Files.writeString (file, properties);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException (e);
+        }
+        final Spec plain = Fixtures.many(COUNT).compile();
+        final Spec spec = Fixtures.many(COUNT)
+            .env_prefix ("SZI_OPTIONS_BENCH_")
+            .config (file)
+            .compile();
+        Bench.run ("no sources: parse, read 2 values", 200000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Result result = plain.parse (ARGUMENTS);
+                        n += result.get("option-3").length()
+                            + result.get_int("option-6");
+                    }
+                    return n;
+                }});
+        Bench.run ("lazy sources: parse, read 2 values", 200000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Result result = spec.parse (ARGUMENTS);
+                        n += result.get("option-3").length()
+                            + result.get_int("option-6");
+                    }
+                    return n;
+                }});
+        Bench.run ("lazy sources: parse, read all values", 2000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Result result = spec.parse (ARGUMENTS);
+                        // Option 3 is given in the arguments.
+                        for (int o = 0; o < COUNT; o += 3)
+                            if (o != 3)
+                                n += result.get_int("option-" + o);
+                    }
+                    return n;
+                }});
+        Bench.run ("eager sources: read all, parse", 2000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Properties properties = new Properties();
+                        try (Reader in = Files.newBufferedReader
+                             (file, StandardCharsets.UTF_8))
+                        {
+                            properties.load (in);
+                        }
+                        catch (IOException e)
+                        {
+                            throw new RuntimeException (e);
+                        }
+                        for (int o = 0; o < COUNT; o += 3)
+                        {
+                            String name = "option-" + o;
+                            String value = System.getenv
+                                ("SZI_OPTIONS_BENCH_OPTION_" + o);
+                            if (value == null)
+                                value = properties.getProperty (name);
+                            n += value.length();
+                        }
+                        n += plain.parse(ARGUMENTS).get_int("option-6");
+                    }
+                    return n;
+                }});
+    }
+}
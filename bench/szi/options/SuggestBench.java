@@ -0,0 +1,86 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.Random;
+
+/**
+ * Compares finding the "did you mean" suggestions for a misspelled
+ * long option by comparing it with every name to the search in the
+ * trigram index of {@link Suggestions}.  The time of the linear scan
+ * grows with the number of options, the time of the index search much
+ * slower.
+ */
+class SuggestBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static void run ()
+    {
+        Bench.header ("Suggestions");
+        for (int count : new int[] { 100, 1000, 4000, 16000 })
+        {
+            final String[] names = Fixtures.names(count);
+            Options options = new Options();
+            for (String name : names)
+                options.option (name, "Option " + name, 0);
+            final Spec spec = options.compile();
+
+            Random random = new Random (1);
+            final String[] typos = new String[64];
+            for (int i = 0; i < typos.length; i++)
+                typos[i] = Fixtures.typo
+                    (names[random.nextInt(names.length)], random);
+
+            int ops = 4000000 / count;
+            Bench.run ("suggest: linear scan " + count,
+                       Math.max (10, 200000 / count),
+                       new Bench.Body() {
+                    public long run (int ops) {
+                        long n = 0;
+                        for (int i = 0; i < ops; i++)
+                            n += Suggestions.nearest
+                                (names, typos[i % typos.length]).length;
+                        return n;
+                    }});
+            Bench.run ("suggest: trigram index " + count, ops,
+                       new Bench.Body() {
+                    public long run (int ops) {
+                        long n = 0;
+                        for (int i = 0; i < ops; i++)
+                            n += spec.suggestions().suggest
+                                (typos[i % typos.length]).length;
+                        return n;
+                    }});
+            Bench.run ("suggest: build index " + count,
+                       Math.max (1, 20000 / count), new Bench.Body() {
+                    public long run (int ops) {
+                        long n = 0;
+                        for (int i = 0; i < ops; i++)
+                            n += new Suggestions (names)
+                                .suggest(typos[0]).length;
+                        return n;
+                    }});
+        }
+    }
+}
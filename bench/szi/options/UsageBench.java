@@ -0,0 +1,60 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Measures rendering the usage text.
+ */
+class UsageBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    private static final class NullOutputStream extends OutputStream
+    {
+        long count = 0;
+        public void write (int b) { count++; }
+        public void write (byte[] b, int off, int len) { count += len; }
+    }
+
+    static void usage (String name, int ops, final Spec spec)
+    {
+        final NullOutputStream sink = new NullOutputStream();
+        final PrintStream out = new PrintStream (sink);
+        Bench.run (name, ops, new Bench.Body() {
+                public long run (int ops) {
+                    for (int i = 0; i < ops; i++)
+                        spec.print_usage (out);
+                    return sink.count;
+                }});
+    }
+
+    static void run ()
+    {
+        Bench.header ("Usage");
+        usage ("print_usage calc", 20000, Fixtures.calc().compile());
+        usage ("print_usage 400 options", 200, Fixtures.many(400).compile());
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Measures checking values with validators compiled into the spec
+ * compared with checking the values by hand after the parse, like
+ * tools compiling their patterns on every call.
+ */
+class ValidateBench
+{
+    public static void main (String[] args)
+    {
+        run();
+    }
+
+    static final String[] ARGUMENTS = {
+        "--port", "8080", "--name", "web-1", "--mode", "fast", "file" };
+
+    static Options options ()
+    {
+        return new Options()
+            .option ('p', "port", "Port.", 1, "80")
+            .option ('n', "name", "Name.", 1)
+            .option ('m', "mode", "Mode.", 1);
+    }
+
+    static void run ()
+    {
+        Bench.header ("Validation");
+        final Spec plain = options().compile();
+        final Spec spec = options()
+            .range ("port", 1, 65535)
+            .matches ("name", "[a-z][a-z0-9-]*")
+            .allowed ("mode", "fast", "safe", "slow")
+            .compile();
+        Bench.run ("parse without checks", 1000000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += plain.parse(ARGUMENTS).positionals().size();
+                    return n;
+                }});
+        Bench.run ("parse with compiled checks", 1000000,
+                   new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                        n += spec.parse(ARGUMENTS).positionals().size();
+                    return n;
+                }});
+        Bench.run ("parse, check by hand", 200000, new Bench.Body() {
+                public long run (int ops) {
+                    long n = 0;
+                    for (int i = 0; i < ops; i++)
+                    {
+                        Result result = plain.parse (ARGUMENTS);
+                        int port = result.get_int ("port");
+                        if (port < 1 || port > 65535)
+                            throw new IllegalArgumentException ("port");
+                        if (!Pattern.matches ("[a-z][a-z0-9-]*",
+                                              result.get("name")))
+                            throw new IllegalArgumentException ("name");
+                        Set<String> modes = new HashSet<String>
+                            (Arrays.asList("fast", "safe", "slow"));
+                        if (!modes.contains (result.get("mode")))
+                            throw new IllegalArgumentException ("mode");
+                        n += result.positionals().size();
+                    }
+                    return n;
+                }});
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks the splitting of command lines by {@link CommandLine} against
+ * the arguments expected from a POSIX shell and the errors for lines
+ * a shell rejects.  Checks the expansion of response files by
+ * {@link ResponseFiles}: their quoting, nested response files and the
+ * limit of the nesting.
+ */
+class ArgumentCheck
+{
+    /** A line followed by the expected arguments. */
+    static final String[][] LINES = {
+        { "" },
+        { " \t\n " },
+        { "a", "a" },
+        { "  a  b\tc\nd  ", "a", "b", "c", "d" },
+        { "--name=value -x", "--name=value", "-x" },
+        { "'a b'", "a b" },
+        { "'a\\b'", "a\\b" },
+        { "'a\"b'", "a\"b" },
+        { "''", "" },
+        { "'' ''", "", "" },
+        { "a''b", "ab" },
+        { "\"a b\"", "a b" },
+        { "\"\"", "" },
+        { "\"a'b\"", "a'b" },
+        { "\"a\\\"b\"", "a\"b" },
+        { "\"a\\\\b\"", "a\\b" },
+        { "\"a\\b\"", "a\\b" },
+        { "\"\\$x \\`y\\`\"", "$x `y`" },
+        { "\"$x\"", "$x" },
+        { "\"a\\\nb\"", "ab" },
+        { "a\"b c\"d", "ab cd" },
+        { "'a'\"b\"c", "abc" },
+        { "a\\ b", "a b" },
+        { "\\'a\\'", "'a'" },
+        { "\\\"", "\"" },
+        { "a\\\\", "a\\" },
+        { "\\a\\b", "ab" },
+        { "a\\\nb", "ab" },
+        { "a \\\n b", "a", "b" },
+        { "\\\n" },
+        { "-- -x '--y'", "--", "-x", "--y" },
+        { "$HOME ~ * ?", "$HOME", "~", "*", "?" },
+        { "\u00e4\u00f6 '\u00fc \u00df'", "\u00e4\u00f6", "\u00fc \u00df" },
+    };
+
+    /** A line followed by the expected error message. */
+    static final String[][] LINE_ERRORS = {
+        { "'a", "Unterminated quote in command line" },
+        { "a 'b c", "Unterminated quote in command line" },
+        { "\"a", "Unterminated quote in command line" },
+        { "\"a\\\"", "Unterminated quote in command line" },
+        { "'a''", "Unterminated quote in command line" },
+        { "a\\", "Backslash at end of command line" },
+        { "a \\", "Backslash at end of command line" },
+    };
+
+    /**
+     * The content of a response file followed by the expected
+     * arguments.  A % is replaced by the directory of the files.
+     */
+    static final String[][] FILES = {
+        { "" },
+        { " \n\t\r\n " },
+        { "a b\nc\r\n\td\n", "a", "b", "c", "d" },
+        { "-v\n--name=value\n", "-v", "--name=value" },
+        { "'a b' \"c d\"", "a b", "c d" },
+        { "'a\\b'", "a\\b" },
+        { "'a\"b' \"a'b\"", "a\"b", "a'b" },
+        { "\"a\\\"b\"", "a\"b" },
+        { "\"a\\b\"", "ab" },
+        { "\"a\\\\b\"", "a\\b" },
+        { "a\\ b \\'c\\'", "a b", "'c'" },
+        { "'' \"\"", "", "" },
+        { "a''b 'a'\"b\"c", "ab", "abc" },
+        { "a\"b c\"d", "ab cd" },
+        // There are no comments in response files.
+        { "# not a comment", "#", "not", "a", "comment" },
+        { "a#b\n#", "a#b", "#" },
+        { "\u00e4\u00f6 '\u00fc \u00df'", "\u00e4\u00f6", "\u00fc \u00df" },
+        { "@", "@" },
+        { "1 @%empty 2", "1", "2" },
+        { "1 @%inner 2", "1", "a b", "c", "2" },
+        { "@%inner @%inner", "a b", "c", "a b", "c" },
+        { "@%nested", "a b", "c", "d" },
+    };
+
+    /**
+     * The content of a response file followed by the expected error.
+     * A % is replaced by the path of the file.
+     */
+    static final String[][] FILE_ERRORS = {
+        { "'a", "Unterminated quote in response file: %" },
+        { "a \"b c", "Unterminated quote in response file: %" },
+        { "\"a\\\"", "Unterminated quote in response file: %" },
+        { "a\\", "Backslash at end of response file: %" },
+        { "\"a\\", "Backslash at end of response file: %" },
+        { "@%.missing", "Can not read response file: %.missing: "
+          + "java.nio.file.NoSuchFileException: %.missing" },
+        // A file including itself must stop at the nesting limit.
+        { "a @%", "Response files nested too deeply: @%" },
+    };
+
+    static int failures = 0;
+
+    public static void main (String[] args)
+        throws IOException
+    {
+        int cases = 0;
+        for (String[] line : LINES)
+        {
+            String[] expected = Arrays.copyOfRange (line, 1, line.length);
+            check (line[0], Arrays.toString(expected),
+                   split (line[0]), split (CharBuffer.wrap(line[0])));
+            cases++;
+        }
+        for (String[] line : LINE_ERRORS)
+        {
+            check (line[0], "error " + line[1],
+                   split (line[0]), split (CharBuffer.wrap(line[0])));
+            cases++;
+        }
+        Path directory = Files.createTempDirectory ("szi-options-check");
+        try
+        {
+            write (directory.resolve("empty"), "");
+            write (directory.resolve("inner"), "'a b'\nc\n");
+            write (directory.resolve("nested"),
+                   "@" + directory.resolve("inner") + " d");
+            for (int f = 0; f < FILES.length; f++)
+            {
+                String[] file = FILES[f];
+                Path path = directory.resolve ("file" + f);
+                write (path, file[0].replace("%", directory + "/"));
+                String[] expected = Arrays.copyOfRange
+                    (file, 1, file.length);
+                check (file[0], Arrays.toString(expected),
+                       expand ("@" + path));
+                cases++;
+            }
+            for (int f = 0; f < FILE_ERRORS.length; f++)
+            {
+                String[] file = FILE_ERRORS[f];
+                Path path = directory.resolve ("error" + f);
+                write (path, file[0].replace("%", path.toString()));
+                check (file[0], "error " + file[1].replace
+                       ("%", path.toString()), expand ("@" + path));
+                cases++;
+            }
+            cases += check_depth (directory);
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.list(directory))
+            {
+                for (Iterator<Path> i = files.iterator(); i.hasNext();)
+                    Files.delete (i.next());
+            }
+            Files.delete (directory);
+        }
+        System.out.println (cases + " cases, " + failures + " failures");
+        if (failures > 0)
+            System.exit (1);
+    }
+
+    static void check (String input, String expected, String... actual)
+    {
+        for (String a : actual)
+            if (!expected.equals(a))
+            {
+                failures++;
+                System.out.println (quote(input)
+                                    + "\n  expected: " + expected
+                                    + "\n  actual:   " + a);
+                return;
+            }
+    }
+
+    /**
+     * Returns the arguments of the line read with
+     * {@link CommandLine#get(int)} and through the tokens of the parser
+     * or the error.
+     */
+    static String split (CharSequence line)
+    {
+        try
+        {
+            CommandLine arguments = CommandLine.split (line);
+            // The tokens come from a second split, which has not
+            // created the strings of the arguments yet.
+            String[] tokens = new String[arguments.size()];
+            Tokens source = CommandLine.split(line).tokens();
+            for (int i = 0; i < tokens.length; i++)
+                tokens[i] = source.get(i).toString();
+            String array = Arrays.toString (arguments.to_array());
+            if (!array.equals(Arrays.toString(tokens)))
+                return array + " but tokens " + Arrays.toString(tokens);
+            return array;
+        }
+        catch (InvalidOptionException e)
+        {
+            return "error " + e.getMessage();
+        }
+    }
+
+    /**
+     * Checks that response files nested {@link ResponseFiles#MAX_DEPTH}
+     * deep are expanded and one more level is rejected.
+     *
+     * @return the number of cases
+     */
+    static int check_depth (Path directory)
+        throws IOException
+    {
+        int deepest = ResponseFiles.MAX_DEPTH + 1;
+        write (directory.resolve("level" + deepest), "end");
+        for (int level = deepest - 1; level > 0; level--)
+            write (directory.resolve("level" + level),
+                   "@" + directory.resolve("level" + (level + 1)));
+        check ("@level2", "[end]",
+               expand ("@" + directory.resolve("level2")));
+        check ("@level1", "error Response files nested too deeply: @"
+               + directory.resolve("level" + deepest),
+               expand ("@" + directory.resolve("level1")));
+        return 2;
+    }
+
+    static void write (Path file, String content)
+        throws IOException
+    {
+        Files.write (file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the expanded arguments or the error.
+     */
+    static String expand (String... arguments)
+    {
+        List<String> expanded = new ArrayList<String>();
+        try
+        {
+            Iterator<String> i = ResponseFiles.expand (arguments);
+            while (i.hasNext())
+                expanded.add (i.next());
+            return expanded.toString();
+        }
+        catch (InvalidOptionException e)
+        {
+            return "error " + e.getMessage();
+        }
+    }
+
+    static String quote (String s)
+    {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"")
+            .replace("\n", "\\n").replace("\t", "\\t") + "\"";
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that the parser generated by the {@link ParserProcessor}
+ * behaves like {@link Spec#parse(String[])}: the same fields are
+ * assigned, the same non option arguments are returned and the same
+ * errors are thrown for chosen and for random arguments.
+ */
+class ParserCheck
+{
+    enum Mode { FAST, SAFE }
+
+    @GenerateParser
+    static class Target
+    {
+        @Opt(flag = 'v', name = "verbose", description = "Verbose.")
+        boolean verbose;
+        @Opt(flag = 'x', description = "Extended.")
+        boolean extended;
+        @Opt(flag = 'n', name = "count", description = "Count.")
+        int count;
+        @Opt(name = "size", description = "Size.", defaults = "7")
+        long size;
+        @Opt(flag = 'r', name = "ratio", description = "Ratio.")
+        double ratio;
+        @Opt(flag = 'o', name = "output", description = "Output.")
+        String output;
+        @Opt(name = "mode", description = "Mode.")
+        Mode mode;
+        @Opt(flag = 'p', name = "pair", description = "Pair.", arity = 2)
+        String[] pair;
+        @Opt(name = "point", description = "Point.", arity = 2,
+             defaults = { "1", "2" })
+        int[] point;
+        @Opt(name = "verify", description = "Verify.")
+        boolean verify;
+    }
+
+    static final String[][] CASES = {
+        {},
+        { "-v", "file" },
+        { "-vx", "-n", "3", "--size", "9", "a", "b" },
+        { "-n3", "--ratio", "0.5", "--mode", "SAFE" },
+        { "--output", "out", "--", "-v", "--count" },
+        { "-pab", "c", "--point", "4", "5" },
+        { "--point", "--verbose" },
+        { "--point" },
+        { "--ver" },
+        { "--verb", "--coun", "1" },
+        { "--bogus" },
+        { "-q" },
+        { "-V" },
+        { "-n" },
+        { "-p", "a" },
+        { "--pair", "a" },
+        { "-n", "x" },
+        { "--mode", "slow" },
+        { "--ratio", "half" },
+        { "-", "--", "--" },
+    };
+
+    static final String[] WORDS = {
+        "-v", "-x", "-vx", "-n", "-n1", "3", "x", "--size", "--count",
+        "--co", "--ver", "--verbose", "--verify", "--ratio", "1.5",
+        "--mode", "FAST", "-p", "-pa", "--pair", "--point", "--", "-",
+        "--bogus", "-q", "-V", "file", "" };
+
+    public static void main (String[] args)
+    {
+        List<String[]> cases = new ArrayList<String[]>(Arrays.asList(CASES));
+        Random random = new Random (1);
+        for (int c = 0; c < 20000; c++)
+        {
+            String[] arguments = new String[random.nextInt(7)];
+            for (int a = 0; a < arguments.length; a++)
+                arguments[a] = WORDS[random.nextInt(WORDS.length)];
+            cases.add (arguments);
+        }
+        int failures = 0;
+        for (String[] arguments : cases)
+        {
+            String expected = spec (arguments);
+            String actual   = generated (arguments);
+            if (!expected.equals(actual))
+            {
+                if (failures++ < 10)
+                    System.out.println (Arrays.toString(arguments)
+                                        + "\n  spec:      " + expected
+                                        + "\n  generated: " + actual);
+            }
+        }
+        System.out.println (cases.size() + " cases, " + failures
+                            + " differences");
+        if (failures > 0)
+            System.exit (1);
+    }
+
+    static String spec (String[] arguments)
+    {
+        Target target = new Target();
+        try
+        {
+            Result result = Binder.bind (target, arguments);
+            return describe (target, result.arguments());
+        }
+        catch (InvalidOptionException e)
+        {
+            return describe (e);
+        }
+    }
+
+    static String generated (String[] arguments)
+    {
+        Target target = new Target();
+        try
+        {
+            return describe (target, ParserCheck_TargetParser.parse
+                             (target, arguments));
+        }
+        catch (InvalidOptionException e)
+        {
+            return describe (e);
+        }
+    }
+
+    static String describe (Target target, String[] positionals)
+    {
+        StringBuilder s = new StringBuilder();
+        try
+        {
+            for (Field field : Target.class.getDeclaredFields())
+            {
+                Object value = field.get (target);
+                s.append(field.getName()).append('=')
+                    .append(value instanceof String[]
+                            ? Arrays.toString((String[])value)
+                            : value instanceof int[]
+                            ? Arrays.toString((int[])value)
+                            : String.valueOf(value))
+                    .append(' ');
+            }
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException (e);
+        }
+        return s.append(Arrays.toString(positionals)).toString();
+    }
+
+    static String describe (InvalidOptionException e)
+    {
+        ParseError error = e.error();
+        if (error == null)
+            return "error " + e.getMessage();
+        return "error " + error.kind() + " option=" + error.option()
+            + " index=" + error.index() + " arity=" + error.arity()
+            + " value=" + error.value() + " suggestions="
+            + error.suggestions() + ": " + error.message();
+    }
+}
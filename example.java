@@ -35,11 +35,11 @@ class example
         die();
     }
 
-    int a (String x, String y) { return new Integer(x) + new Integer(y); }
-    int s (String x, String y) { return new Integer(x) + new Integer(y); }
-    int m (String x, String y) { return new Integer(x) + new Integer(y); }
-    int d (String x, String y) { return new Integer(x) + new Integer(y); }
-    int q (String x) { Integer i = new Integer (x); return i * i; }
+    int a (int x, int y) { return x + y; }
+    int s (int x, int y) { return x - y; }
+    int m (int x, int y) { return x * y; }
+    int d (int x, int y) { return x / y; }
+    int q (int x) { return x * x; }
     
     static <T> void println (T... args)
     {
@@ -62,48 +62,68 @@ class example
             .option ("nine", "9 arguments.", 9)
             .option ("ordinals", "Three ordinals.",
                      "1st", "2nd", "3rd")
+            .exclusive ("operation", "add", "subtract", "multiply",
+                        "divide", "square", "eight", "nine", "ordinals")
             ;
         
         if (args.length == 0)
             options.print_usage(System.out);
         else
         {
-            try { options.parse(args); }
-            catch (InvalidOptionException e)
+            try
             {
-                die (e.getMessage());
-            }
+                options.parse(args);
 
-            if (options.isset("help"))
-                options.print_usage();
-            else
-            {
                 example calc = new example ();
-                
-                if (options.isset('a'))
-                    println (calc.a(options.get('a', 0),
-                                    options.get('a', 1)));
-                else if (options.isset('s'))
-                    println (calc.s(options.get('s', 0),
-                                    options.get('s', 1)));
-                else if (options.isset('m'))
-                    println (calc.m(options.get('m', 0),
-                                    options.get('m', 1)));
-                else if (options.isset('d'))
-                    println (calc.d(options.get('d', 0),
-                                    options.get('d', 1)));
-                else if (options.isset('q'))
-                    println (calc.q(options.get('q')));
-                else if (options.isset("eight"))
+
+                // Help is not part of the operations, so that it can
+                // be combined with any of them.
+                if (options.isset("help"))
+                {
+                    options.print_usage();
+                    return;
+                }
+                switch (options.which_of("operation"))
+                {
+                case 0:
+                    println (calc.a(options.get_int('a', 0),
+                                    options.get_int('a', 1)));
+                    break;
+                case 1:
+                    println (calc.s(options.get_int('s', 0),
+                                    options.get_int('s', 1)));
+                    break;
+                case 2:
+                    println (calc.m(options.get_int('m', 0),
+                                    options.get_int('m', 1)));
+                    break;
+                case 3:
+                    if (options.get_int('d', 1) == 0)
+                        die ("Division by zero");
+                    println (calc.d(options.get_int('d', 0),
+                                    options.get_int('d', 1)));
+                    break;
+                case 4:
+                    println (calc.q(options.get_int('q')));
+                    break;
+                case 5:
                     println ("eight");
-                else if (options.isset("nine"))
+                    break;
+                case 6:
                     println ("nine");
-                else if (options.isset("ordinals"))
+                    break;
+                case 7:
                     println (options.get ("ordinals", 0),
                              options.get ("ordinals", 1),
                              options.get ("ordinals", 2));
-                else
+                    break;
+                default:
                     die ("Invalid option given");
+                }
+            }
+            catch (InvalidOptionException e)
+            {
+                die (e.getMessage());
             }
         }
     }
@@ -0,0 +1,221 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The results of parsing many argument lists with the same spec.  The
+ * argument lists are parsed in parallel on a fork/join pool.  A
+ * failing argument list does not stop the batch: its errors are
+ * recorded and the others are parsed anyway.  The errors of an
+ * argument list are collected without unwinding the stack and are
+ * wrapped in an exception without stack trace.
+ *
+ * @see Spec#parse_batch(List)
+ */
+public final class Batch
+{
+    /** The number of argument lists parsed by one task. */
+    static final int THRESHOLD = 512;
+
+    /**
+     * The error of one argument list.
+     */
+    public static final class Failure
+    {
+        private final int                    line;
+        private final InvalidOptionException error;
+
+        Failure (int line, InvalidOptionException error)
+        {
+            this.line  = line;
+            this.error = error;
+        }
+
+        /** Returns the index of the argument list. */
+        public int line ()
+        {
+            return line;
+        }
+
+        /** Returns the error. */
+        public InvalidOptionException error ()
+        {
+            return error;
+        }
+
+        public String toString ()
+        {
+            return line + ": " + error.getMessage();
+        }
+    }
+
+    private final Result[]                 results;
+    private final InvalidOptionException[] errors;
+    private int failed = 0;
+
+    private Batch (int size)
+    {
+        results = new Result[size];
+        errors  = new InvalidOptionException[size];
+    }
+
+    private final class Task extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Spec           spec;
+        private final List<String[]> lines;
+        private final int            from;
+        private final int            to;
+        int failed = 0;
+
+        Task (Spec spec, List<String[]> lines, int from, int to)
+        {
+            this.spec  = spec;
+            this.lines = lines;
+            this.from  = from;
+            this.to    = to;
+        }
+
+        protected void compute ()
+        {
+            if (to - from <= THRESHOLD)
+            {
+                for (int i = from; i < to; i++)
+                {
+                    Result result;
+                    try
+                    {
+                        result = spec.try_parse (lines.get(i));
+                    }
+                    catch (InvalidOptionException e)
+                    {
+                        // Errors without a parse error, for example of
+                        // a handler, fail the line, not the batch.
+                        errors[i] = e;
+                        failed++;
+                        continue;
+                    }
+                    if (result.ok())
+                        results[i] = result;
+                    else
+                    {
+                        List<ParseError> found = result.errors();
+                        errors[i] = new InvalidOptionException
+                            (false, found.toArray(new ParseError[0]));
+                        failed++;
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            Task left  = new Task (spec, lines, from, middle);
+            Task right = new Task (spec, lines, middle, to);
+            invokeAll (left, right);
+            failed = left.failed + right.failed;
+        }
+    }
+
+    /**
+     * @see Spec#parse_batch(List, ForkJoinPool)
+     */
+    static Batch parse (Spec spec, List<String[]> lines, ForkJoinPool pool)
+    {
+        if (!(lines instanceof RandomAccess))
+            lines = new ArrayList<String[]>(lines);
+        Batch batch = new Batch (lines.size());
+        Task task = batch.new Task (spec, lines, 0, lines.size());
+        pool.invoke (task);
+        batch.failed = task.failed;
+        return batch;
+    }
+
+    /**
+     * Returns the number of argument lists.
+     */
+    public int size ()
+    {
+        return results.length;
+    }
+
+    /**
+     * Returns the number of argument lists, which could not be parsed.
+     */
+    public int failed ()
+    {
+        return failed;
+    }
+
+    /**
+     * Returns the result of an argument list.
+     *
+     * @param line the index of the argument list
+     *
+     * @return the result or null, if the argument list could not be
+     *         parsed
+     */
+    public Result result (int line)
+    {
+        return results[line];
+    }
+
+    /**
+     * Returns the error of an argument list.
+     *
+     * @param line the index of the argument list
+     *
+     * @return the error or null, if the argument list has been parsed
+     */
+    public InvalidOptionException error (int line)
+    {
+        return errors[line];
+    }
+
+    /**
+     * Returns the results as an unmodifiable list with null for the
+     * argument lists, which could not be parsed.
+     */
+    public List<Result> results ()
+    {
+        return new AbstractList<Result>() {
+            public Result get (int index) { return results[index]; }
+            public int size () { return results.length; }
+        };
+    }
+
+    /**
+     * Returns the errors ordered by the index of the argument list.
+     */
+    public List<Failure> failures ()
+    {
+        List<Failure> failures = new ArrayList<Failure>(failed);
+        for (int i = 0; i < errors.length; i++)
+            if (errors[i] != null)
+                failures.add (new Failure (i, errors[i]));
+        return failures;
+    }
+}
@@ -0,0 +1,455 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds parsed options to the fields of an object or the components
+ * of a record annotated with {@link Opt}.  The option spec and the
+ * method handles assigning the values are created once per class and
+ * cached, so binding an object costs little more than writing its
+ * fields directly.
+ *
+ * <pre>
+ * Calc calc = new Calc();
+ * Result result = Binder.bind (calc, args);
+ * </pre>
+ *
+ * Supported types are boolean, int, long, double, their wrapper
+ * classes, String and enums, and arrays of String, int, long and
+ * double for options with several values.  A field is assigned only,
+ * if its option is set or has default values, so the initial value of
+ * the field is the fallback otherwise.
+ */
+public final class Binder
+{
+    private Binder () {}
+
+    private static final int BOOLEAN      = 0;
+    private static final int INT          = 1;
+    private static final int LONG         = 2;
+    private static final int DOUBLE       = 3;
+    private static final int STRING       = 4;
+    private static final int ENUM         = 5;
+    private static final int STRING_ARRAY = 6;
+    private static final int INT_ARRAY    = 7;
+    private static final int LONG_ARRAY   = 8;
+    private static final int DOUBLE_ARRAY = 9;
+
+    private static final ClassValue<Binding> bindings =
+        new ClassValue<Binding>() {
+            protected Binding computeValue (Class<?> type) {
+                return new Binding (type);
+            }
+        };
+
+    /**
+     * The compiled binding of a class.
+     */
+    private static final class Binding
+    {
+        final Spec           spec;
+        final Option[]       options;
+        final int[]          kinds;
+        final boolean[]      primitive;
+        final Class<?>[]     types;
+        /** The field setters with exact types for primitive kinds. */
+        final MethodHandle[] setters;
+        /** The canonical constructor of a record taking an Object[]. */
+        final MethodHandle   constructor;
+
+        /**
+         * @throws InvalidOptionException
+         */
+        Binding (Class<?> type)
+        {
+            MethodHandles.Lookup lookup;
+            try
+            {
+                lookup = MethodHandles.privateLookupIn
+                    (type, MethodHandles.lookup());
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new InvalidOptionException
+                    ("Can not access class: " + type.getName());
+            }
+            List<Opt>      opts    = new ArrayList<Opt>();
+            List<String>   names   = new ArrayList<String>();
+            List<Class<?>> classes = new ArrayList<Class<?>>();
+            List<Field>    fields  = new ArrayList<Field>();
+            if (type.isRecord())
+                for (RecordComponent component : type.getRecordComponents())
+                {
+                    opts.add    (component.getAnnotation(Opt.class));
+                    names.add   (component.getName());
+                    classes.add (component.getType());
+                }
+            else
+                for (Class<?> c : hierarchy(type))
+                    for (Field field : c.getDeclaredFields())
+                        if (field.isAnnotationPresent(Opt.class))
+                        {
+                            opts.add    (field.getAnnotation(Opt.class));
+                            names.add   (field.getName());
+                            classes.add (field.getType());
+                            fields.add  (field);
+                        }
+
+            int n = opts.size();
+            options   = new Option[n];
+            kinds     = new int[n];
+            primitive = new boolean[n];
+            types     = classes.toArray(new Class<?>[0]);
+            setters   = new MethodHandle[n];
+            Options definitions = new Options();
+            for (int i = 0; i < n; i++)
+            {
+                Opt opt = opts.get(i);
+                Class<?> c = types[i];
+                // Unannotated record components get the zero value.
+                primitive[i] = c.isPrimitive();
+                if (opt == null)
+                    continue;
+                kinds[i] = kind (c, names.get(i));
+                int arity = opt.arity();
+                if (arity < 0)
+                    if (kinds[i] == BOOLEAN)
+                        arity = 0;
+                    else if (c.isArray())
+                        throw new InvalidOptionException
+                            ("Missing arity for array: " + names.get(i));
+                    else
+                        arity = 1;
+                if (arity == 0 && kinds[i] != BOOLEAN)
+                    throw new InvalidOptionException
+                        ("Only boolean options can have no value: "
+                         + names.get(i));
+                if (arity > 1 && !c.isArray())
+                    throw new InvalidOptionException
+                        ("Options with several values need an array: "
+                         + names.get(i));
+                Character flag = opt.flag() == 0 ? null : opt.flag();
+                String name = opt.name().isEmpty()
+                    ? (flag == null ? names.get(i) : null)
+                    : opt.name();
+                definitions.option (flag, name, opt.description(),
+                                    arity, opt.defaults());
+            }
+            spec = definitions.compile();
+            for (int i = 0, o = 0; i < n; i++)
+                if (opts.get(i) != null)
+                    options[i] = spec.options[o++];
+
+            try
+            {
+                if (type.isRecord())
+                {
+                    constructor = lookup.findConstructor
+                        (type, MethodType.methodType(void.class, types))
+                        .asSpreader(Object[].class, n)
+                        .asType(MethodType.methodType
+                                (Object.class, Object[].class));
+                }
+                else
+                {
+                    constructor = null;
+                    for (int i = 0; i < n; i++)
+                    {
+                        Field field = fields.get(i);
+                        if (Modifier.isFinal(field.getModifiers()))
+                            throw new InvalidOptionException
+                                ("Can not bind final field: " + names.get(i));
+                        Class<?> c = types[i];
+                        // Private fields of a superclass need a lookup
+                        // in the declaring class.
+                        MethodHandles.Lookup declaring =
+                            field.getDeclaringClass() == type
+                            ? lookup
+                            : MethodHandles.privateLookupIn
+                              (field.getDeclaringClass(),
+                               MethodHandles.lookup());
+                        setters[i] = declaring.unreflectSetter(field).asType
+                            (MethodType.methodType
+                             (void.class, Object.class,
+                              c.isPrimitive() ? c : Object.class));
+                    }
+                }
+            }
+            catch (ReflectiveOperationException e)
+            {
+                throw new InvalidOptionException
+                    ("Can not bind class " + type.getName() + ": " + e);
+            }
+        }
+    }
+
+    private static List<Class<?>> hierarchy (Class<?> type)
+    {
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        for (Class<?> c = type; c != null && c != Object.class;
+             c = c.getSuperclass())
+            classes.add (0, c);
+        return classes;
+    }
+
+    /**
+     * @throws InvalidOptionException
+     */
+    private static int kind (Class<?> c, String name)
+    {
+        if (c == boolean.class || c == Boolean.class) return BOOLEAN;
+        if (c == int.class     || c == Integer.class) return INT;
+        if (c == long.class    || c == Long.class)    return LONG;
+        if (c == double.class  || c == Double.class)  return DOUBLE;
+        if (c == String.class)                        return STRING;
+        if (c.isEnum())                               return ENUM;
+        if (c == String[].class)                      return STRING_ARRAY;
+        if (c == int[].class)                         return INT_ARRAY;
+        if (c == long[].class)                        return LONG_ARRAY;
+        if (c == double[].class)                      return DOUBLE_ARRAY;
+        throw new InvalidOptionException
+            ("Unsupported type " + c.getName() + " for option: " + name);
+    }
+
+    /**
+     * Returns the option spec of an annotated class.
+     *
+     * @param type the class with {@link Opt} annotations
+     *
+     * @return the compiled spec
+     *
+     * @throws InvalidOptionException if the annotations are invalid
+     */
+    public static Spec spec (Class<?> type)
+    {
+        return bindings.get(type).spec;
+    }
+
+    /**
+     * Parses the arguments and assigns the options to the annotated
+     * fields of the target.
+     *
+     * @param target    the object with {@link Opt} annotated fields
+     * @param arguments the command line arguments
+     *
+     * @return the parse result
+     *
+     * @throws InvalidOptionException
+     */
+    public static Result bind (Object target, String[] arguments)
+    {
+        Result result = spec(target.getClass()).parse(arguments);
+        bind (target, result);
+        return result;
+    }
+
+    /**
+     * Assigns the options of a parse result to the annotated fields of
+     * the target.  The result must come from the spec of the class of
+     * the target.
+     *
+     * @param target the object with {@link Opt} annotated fields
+     * @param result the parse result
+     *
+     * @throws InvalidOptionException
+     */
+    public static void bind (Object target, Result result)
+    {
+        Binding binding = bindings.get(target.getClass());
+        check (binding, result);
+        try
+        {
+            for (int i = 0; i < binding.options.length; i++)
+            {
+                Option option = binding.options[i];
+                if (!result.isset(option) && !option.has_default())
+                    continue;
+                MethodHandle setter = binding.setters[i];
+                if (binding.primitive[i])
+                    switch (binding.kinds[i])
+                    {
+                    case BOOLEAN:
+                        setter.invokeExact (target, value_boolean
+                                            (option, result));
+                        break;
+                    case INT:
+                        setter.invokeExact (target, result.to_int(option, 0));
+                        break;
+                    case LONG:
+                        setter.invokeExact (target, result.to_long(option, 0));
+                        break;
+                    case DOUBLE:
+                        setter.invokeExact (target,
+                                            result.to_double(option, 0));
+                        break;
+                    }
+                else
+                    setter.invokeExact (target, value (binding, i, result));
+            }
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable e)
+        {
+            throw new IllegalStateException (e);
+        }
+    }
+
+    /**
+     * Parses the arguments and creates a record from the options.
+     *
+     * @param type      the record class with {@link Opt} annotated
+     *                  components
+     * @param arguments the command line arguments
+     *
+     * @return the new record
+     *
+     * @throws InvalidOptionException
+     */
+    public static <R extends Record> R create (Class<R> type,
+                                               String[] arguments)
+    {
+        return create (type, spec(type).parse(arguments));
+    }
+
+    /**
+     * Creates a record from the options of a parse result.  Components
+     * of unset options without default get the zero value of their
+     * type.
+     *
+     * @param type   the record class with {@link Opt} annotated
+     *               components
+     * @param result the parse result
+     *
+     * @return the new record
+     *
+     * @throws InvalidOptionException
+     */
+    public static <R extends Record> R create (Class<R> type, Result result)
+    {
+        Binding binding = bindings.get(type);
+        check (binding, result);
+        Object[] arguments = new Object[binding.options.length];
+        for (int i = 0; i < arguments.length; i++)
+        {
+            Option option = binding.options[i];
+            if (option != null &&
+                (result.isset(option) || option.has_default()))
+                arguments[i] = value (binding, i, result);
+            else if (binding.primitive[i])
+                arguments[i] = zero (binding.types[i]);
+        }
+        try
+        {
+            return type.cast (binding.constructor.invokeExact (arguments));
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable e)
+        {
+            throw new IllegalStateException (e);
+        }
+    }
+
+    private static void check (Binding binding, Result result)
+    {
+        if (result.spec != binding.spec)
+            throw new IllegalArgumentException
+                ("The result does not belong to the spec of the class");
+    }
+
+    private static boolean value_boolean (Option option, Result result)
+    {
+        if (option.required_values == 0)
+            return result.isset(option);
+        return result.to_boolean(option, 0);
+    }
+
+    private static Object zero (Class<?> type)
+    {
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == int.class)     return 0;
+        if (type == long.class)    return 0L;
+        return 0.0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object value (Binding binding, int i, Result result)
+    {
+        Option option = binding.options[i];
+        int arity = option.required_values;
+        switch (binding.kinds[i])
+        {
+        case BOOLEAN:
+            return value_boolean (option, result);
+        case INT:
+            return result.to_int (option, 0);
+        case LONG:
+            return result.to_long (option, 0);
+        case DOUBLE:
+            return result.to_double (option, 0);
+        case STRING:
+            return result.value (option, 0);
+        case ENUM:
+            return result.to_enum (option, 0, (Class)binding.types[i]);
+        case STRING_ARRAY:
+        {
+            String[] values = new String[arity];
+            for (int v = 0; v < arity; v++)
+                values[v] = result.value (option, v);
+            return values;
+        }
+        case INT_ARRAY:
+        {
+            int[] values = new int[arity];
+            for (int v = 0; v < arity; v++)
+                values[v] = result.to_int (option, v);
+            return values;
+        }
+        case LONG_ARRAY:
+        {
+            long[] values = new long[arity];
+            for (int v = 0; v < arity; v++)
+                values[v] = result.to_long (option, v);
+            return values;
+        }
+        default:
+        {
+            double[] values = new double[arity];
+            for (int v = 0; v < arity; v++)
+                values[v] = result.to_double (option, v);
+            return values;
+        }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.function.Supplier;
+
+/**
+ * A subcommand.  The options of the command are defined by a supplier,
+ * which is called only when the command is found in the arguments.
+ * The compiled spec is kept, so the supplier is called at most once.
+ */
+final class Command
+{
+    final String name;
+    final String description;
+    private final Supplier<Options> options;
+    private volatile Spec spec = null;
+
+    /**
+     * @throws InvalidOptionException
+     */
+    Command (String name, String description, Supplier<Options> options)
+    {
+        if (name == null || name.isEmpty())
+            throw new InvalidOptionException
+                ("Missing command name");
+        if (name.charAt(0) == '-')
+            throw new InvalidOptionException
+                ("Command name starts with a hyphen: " + name);
+        if (description == null)
+            throw new InvalidOptionException
+                ("Missing command description");
+        if (options == null)
+            throw new InvalidOptionException
+                ("Missing command options");
+        this.name        = name;
+        this.description = description;
+        this.options     = options;
+    }
+
+    /**
+     * Returns the spec of the command.  The options are created and
+     * compiled on the first call.
+     */
+    Spec spec ()
+    {
+        Spec spec = this.spec;
+        if (spec == null)
+            synchronized (this)
+            {
+                spec = this.spec;
+                if (spec == null)
+                    this.spec = spec = options.get().compile();
+            }
+        return spec;
+    }
+
+    /** Tells if the spec of the command has been created. */
+    boolean loaded ()
+    {
+        return spec != null;
+    }
+
+    public String toString ()
+    {
+        return name;
+    }
+}
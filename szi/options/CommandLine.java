@@ -0,0 +1,295 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.Arrays;
+
+/**
+ * A command line split into arguments like a POSIX shell does.  The
+ * line is scanned once and every argument is recorded as the range of
+ * its characters in the line.  No string is created by the split.
+ * The parser reads the arguments through views of the ranges, so
+ * options are recognized without copying them.  A string is created
+ * only for an argument, which is read as a value, or which contains
+ * quotes or backslashes that have to be removed.
+ * <p>
+ * Arguments are separated by unquoted white space.  Single quotes
+ * preserve everything up to the next single quote.  Double quotes
+ * preserve everything up to the next double quote except a backslash
+ * followed by <code>$</code>, <code>`</code>, <code>"</code>,
+ * <code>\</code> or a newline.  Outside of quotes a backslash
+ * preserves the next character.  A backslash followed by a newline is
+ * removed.  Nothing is expanded.
+ * <p>
+ * The line must not be modified as long as the arguments or the parse
+ * result are in use.
+ */
+public final class CommandLine
+{
+    private final CharSequence line;
+    /**
+     * Two ints per argument: the start and the end of the range.  The
+     * end is stored as its complement, if the argument has to be
+     * unescaped.
+     */
+    private final int[] ranges;
+    private final int size;
+    /** The arguments created so far. */
+    final String[] strings;
+
+    private CommandLine (CharSequence line, int[] ranges, int size)
+    {
+        this.line    = line;
+        this.ranges  = ranges;
+        this.size    = size;
+        this.strings = new String[size];
+    }
+
+    private static boolean space (char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' ||
+            c == '\r' || c == '\f';
+    }
+
+    /**
+     * Splits the line into arguments.
+     *
+     * @param line the command line, for example a string or a char
+     *             buffer
+     *
+     * @return the arguments
+     *
+     * @throws InvalidOptionException if a quote is not closed or the
+     *                                line ends with a backslash
+     */
+    public static CommandLine split (CharSequence line)
+    {
+        int length = line.length();
+        // A line has at most one argument per two characters.
+        int[] ranges = new int[Math.min(length + 1, 64)];
+        int size = 0;
+        int i = 0;
+        while (i < length)
+        {
+            char c = line.charAt(i);
+            if (space(c))
+            {
+                i++;
+                continue;
+            }
+            if (c == '\\' && i + 1 < length && line.charAt(i + 1) == '\n')
+            {
+                // An escaped newline between arguments.
+                i += 2;
+                continue;
+            }
+            int start = i;
+            boolean plain = true;
+            do
+            {
+                i++;
+                if (c == '\\')
+                {
+                    if (i == length)
+                        throw new InvalidOptionException
+                            ("Backslash at end of command line");
+                    i++;
+                    plain = false;
+                }
+                else if (c == '\'' || c == '"')
+                {
+                    i = close (line, i, c);
+                    plain = false;
+                }
+            }
+            while (i < length && !space(c = line.charAt(i)));
+            if (2 * size == ranges.length)
+                ranges = Arrays.copyOf (ranges, 2 * ranges.length);
+            ranges[2 * size]     = start;
+            ranges[2 * size + 1] = plain ? i : ~i;
+            size++;
+        }
+        return new CommandLine (line, ranges, size);
+    }
+
+    /**
+     * Returns the index after the closing quote.
+     *
+     * @param i the index after the opening quote
+     */
+    private static int close (CharSequence line, int i, char quote)
+    {
+        int length = line.length();
+        for (; i < length; i++)
+        {
+            char c = line.charAt(i);
+            if (c == quote)
+                return i + 1;
+            if (c == '\\' && quote == '"')
+                i++;
+        }
+        throw new InvalidOptionException
+            ("Unterminated quote in command line");
+    }
+
+    /**
+     * Returns the number of arguments.
+     */
+    public int size ()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the argument at the index.  The string is created once.
+     *
+     * @param index the index of the argument
+     *
+     * @return the argument without quotes and escapes
+     */
+    public String get (int index)
+    {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException
+                ("Index: " + index + ", Size: " + size);
+        String s = strings[index];
+        if (s == null)
+        {
+            int start = ranges[2 * index];
+            int end   = ranges[2 * index + 1];
+            strings[index] = s = end >= 0
+                ? line.subSequence(start, end).toString()
+                : unescape (start, ~end);
+        }
+        return s;
+    }
+
+    /**
+     * Returns a new array of all arguments.
+     */
+    public String[] to_array ()
+    {
+        String[] arguments = new String[size];
+        for (int i = 0; i < size; i++)
+            arguments[i] = get (i);
+        return arguments;
+    }
+
+    private String unescape (int start, int end)
+    {
+        StringBuilder s = new StringBuilder (end - start);
+        char quote = 0;
+        for (int i = start; i < end; i++)
+        {
+            char c = line.charAt(i);
+            if (quote == '\'')
+            {
+                if (c == '\'')
+                    quote = 0;
+                else
+                    s.append (c);
+            }
+            else if (c == '\\')
+            {
+                char next = line.charAt(++i);
+                if (quote == '"' && "$`\"\\\n".indexOf(next) < 0)
+                    s.append (c);
+                if (next != '\n')
+                    s.append (next);
+            }
+            else if (c == '"' && quote == '"')
+                quote = 0;
+            else if ((c == '"' || c == '\'') && quote == 0)
+                quote = c;
+            else
+                s.append (c);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns the tokens for the parser.
+     */
+    Tokens tokens ()
+    {
+        return new Source();
+    }
+
+    /**
+     * The arguments for the parser.  Arguments without quotes and
+     * escapes are returned as views of the line.  The parser looks at
+     * most one argument ahead and does not keep arguments, so two
+     * views are enough.
+     */
+    private final class Source implements Tokens
+    {
+        private final View[] window = { new View(), new View() };
+
+        public CharSequence get (int index)
+        {
+            if (index >= size)
+                return null;
+            String s = strings[index];
+            if (s != null)
+                return s;
+            int end = ranges[2 * index + 1];
+            if (end < 0)
+                return CommandLine.this.get (index);
+            View view = window[index & 1];
+            view.index = index;
+            view.start = ranges[2 * index];
+            view.end   = end;
+            return view;
+        }
+
+        public int count ()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * A view of an argument without quotes and escapes.
+     */
+    private final class View implements CharSequence
+    {
+        int index, start, end;
+
+        public int length ()
+        {
+            return end - start;
+        }
+
+        public char charAt (int i)
+        {
+            return line.charAt(start + i);
+        }
+
+        public CharSequence subSequence (int from, int to)
+        {
+            return line.subSequence(start + from, start + to);
+        }
+
+        public String toString ()
+        {
+            return get (index);
+        }
+    }
+}
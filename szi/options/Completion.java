@@ -0,0 +1,359 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shell completion for the options of a spec.  The completion scripts
+ * for bash and zsh complete the options and commands statically.  If
+ * a {@link CompletionServer} is running on the socket given to the
+ * generator, the scripts ask the server instead, which also knows how
+ * many values an option takes.  The scripts need <code>socat</code>
+ * or <code>nc</code> with Unix domain sockets to talk to the server
+ * and fall back to the static completion, if neither is installed or
+ * the server is not running.
+ */
+public final class Completion
+{
+    private Completion () {}
+
+    /**
+     * Returns the completions of a word.  The words before it are
+     * parsed like the parser does to find the command and to know, if
+     * the word is the value of an option.  No completions are returned
+     * for values and non option arguments, so that the shell completes
+     * file names.
+     *
+     * @param spec    the spec of the program
+     * @param words   the words of the command line starting with the
+     *                name of the program
+     * @param current the index of the word to complete
+     *
+     * @return the completions in the order of the definitions
+     */
+    public static List<String> complete (Spec spec, List<String> words,
+                                         int current)
+    {
+        int pending = 0;
+        boolean variadic = false;
+        boolean command = false;
+        for (int w = 1; w < current && w < words.size(); w++)
+        {
+            String word = words.get(w);
+            boolean option = word.length() > 1 && word.charAt(0) == '-';
+            if (pending > 0)
+                pending--;
+            else if (variadic && !option)
+                continue;
+            else if (word.equals("--"))
+                return new ArrayList<String>();
+            else if (word.startsWith("--"))
+            {
+                Option o = spec.long_names.find (word, 2, word.length());
+                pending  = o == null ? 0 : o.required_values;
+                variadic = o != null && o.variadic;
+            }
+            else if (option)
+            {
+                pending  = 0;
+                variadic = false;
+                for (int i = 1; i < word.length(); i++)
+                {
+                    Option o = spec.short_option (word.charAt(i));
+                    if (o == null)
+                        break;
+                    if (o.required_values > 0 || o.variadic)
+                    {
+                        // A rest of the word is the first value.
+                        pending  = o.required_values -
+                            (i + 1 < word.length() ? 1 : 0);
+                        variadic = o.variadic;
+                        break;
+                    }
+                }
+            }
+            else if (!spec.commands.isEmpty() && !command)
+            {
+                Command c = spec.commands.get(word);
+                if (c != null)
+                {
+                    spec     = c.spec();
+                    variadic = false;
+                }
+                command = true;
+            }
+        }
+        List<String> completions = new ArrayList<String>();
+        String word = current < words.size() ? words.get(current) : "";
+        if (pending > 0)
+            return completions;
+        if (word.equals("-"))
+        {
+            for (Option option : spec.options)
+                if (option.name != null)
+                    completions.add ("--" + option.name);
+            for (Option option : spec.options)
+                if (option.flag != null)
+                    completions.add ("-" + option.flag);
+        }
+        else if (word.startsWith("--"))
+        {
+            int length = word.length() - 2;
+            for (Option option : spec.options)
+                if (option.name != null &&
+                    option.name.regionMatches(0, word, 2, length))
+                    completions.add ("--" + option.name);
+        }
+        else if (word.startsWith("-"))
+        {
+            Option option = spec.short_option (word.charAt(1));
+            if (word.length() == 2 && option != null)
+                completions.add (word);
+        }
+        else if (!variadic && !command)
+            for (String name : spec.commands.keySet())
+                if (name.startsWith(word))
+                    completions.add (name);
+        return completions;
+    }
+
+    /**
+     * Returns the options of the spec as shell words.
+     */
+    private static String words (Spec spec, boolean commands)
+    {
+        StringBuilder words = new StringBuilder();
+        for (Option option : spec.options)
+        {
+            if (option.flag != null)
+                words.append(" -").append(option.flag);
+            if (option.name != null)
+                words.append(" --").append(option.name);
+        }
+        if (commands)
+            for (String name : spec.commands.keySet())
+                words.append(' ').append(name);
+        return quote (words.toString().trim());
+    }
+
+    /**
+     * Returns the options taking values as a pattern for a case
+     * statement or null if there are none.
+     */
+    private static String valued (Spec spec)
+    {
+        StringBuilder pattern = new StringBuilder();
+        for (Option option : spec.options)
+            if (option.required_values > 0 || option.variadic)
+            {
+                if (option.flag != null)
+                    pattern.append("|-").append(option.flag);
+                if (option.name != null)
+                    pattern.append("|--").append(option.name);
+            }
+        if (pattern.length() == 0)
+            return null;
+        return quote (pattern.substring(1)).replace("|", "'|'");
+    }
+
+    /** Quotes a word for the shell. */
+    private static String quote (String word)
+    {
+        return "'" + word.replace("'", "'\\''") + "'";
+    }
+
+    /** Returns the program name as part of a shell function name. */
+    private static String function (String program)
+    {
+        return "_" + program.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    /**
+     * Returns a bash completion script for the program.  The script
+     * is loaded with <code>source</code>.  The options of all commands
+     * are loaded to generate the script.
+     *
+     * @param spec    the spec of the program
+     * @param program the name of the program
+     * @param socket  the socket of the completion server or null for
+     *                static completion only
+     *
+     * @return the script
+     */
+    public static String bash (Spec spec, String program, Path socket)
+    {
+        String f = function (program);
+        StringBuilder out = new StringBuilder();
+        out.append("# bash completion for ").append(program).append('\n')
+            .append(f).append("_static ()\n{\n")
+            .append("    local cur=${COMP_WORDS[COMP_CWORD]}")
+            .append(" prev=${COMP_WORDS[COMP_CWORD-1]} cmd= i")
+            .append(" IFS=$' \\t\\n'\n");
+        if (!spec.commands.isEmpty())
+        {
+            out.append("    for ((i = 1; i < COMP_CWORD; i++)); do\n")
+                .append("        case ${COMP_WORDS[i]} in\n");
+            for (String name : spec.commands.keySet())
+                out.append("            ").append(quote(name))
+                    .append(") cmd=${COMP_WORDS[i]}; break ;;\n");
+            out.append("        esac\n    done\n");
+        }
+        out.append("    case $cmd in\n");
+        for (Command command : spec.commands.values())
+            bash_case (out, quote(command.name), command.spec(), false);
+        bash_case (out, "*", spec, true);
+        out.append("    esac\n}\n\n")
+            .append(f).append(" ()\n{\n");
+        if (socket != null)
+        {
+            out.append("    local socket=")
+                .append(quote(socket.toAbsolutePath().toString()))
+                .append(" client IFS=$'\\n'\n")
+                .append("    if [[ -S $socket ]]; then\n")
+                .append("        if type -P socat >/dev/null; then\n")
+                .append("            client=(socat -t 1 - ")
+                .append("\"UNIX-CONNECT:$socket\")\n")
+                .append("        elif type -P nc >/dev/null; then\n")
+                .append("            client=(nc -U \"$socket\")\n")
+                .append("        fi\n")
+                .append("        if [[ $client ]] && COMPREPLY=($(printf ")
+                .append("'%s\\0' \"$COMP_CWORD\" \"${#COMP_WORDS[@]}\" ")
+                .append("\"${COMP_WORDS[@]}\" |\n")
+                .append("                \"${client[@]}\" 2>/dev/null)); ")
+                .append("then\n")
+                .append("            return\n")
+                .append("        fi\n")
+                .append("    fi\n");
+        }
+        out.append("    ").append(f).append("_static\n}\n\n")
+            .append("complete -o default -F ").append(f).append(' ')
+            .append(quote(program)).append('\n');
+        return out.toString();
+    }
+
+    private static void bash_case (StringBuilder out, String pattern,
+                                   Spec spec, boolean commands)
+    {
+        out.append("        ").append(pattern).append(")\n");
+        String valued = valued (spec);
+        if (valued != null)
+            out.append("            case $prev in ").append(valued)
+                .append(") return ;; esac\n");
+        out.append("            COMPREPLY=($(compgen -W ")
+            .append(words(spec, commands && !spec.commands.isEmpty()))
+            .append(" -- \"$cur\")) ;;\n");
+    }
+
+    /**
+     * Returns a zsh completion script for the program.  The script
+     * is installed as <code>_program</code> in a directory of the
+     * <code>fpath</code>.
+     *
+     * @see #bash(Spec, String, Path)
+     */
+    public static String zsh (Spec spec, String program, Path socket)
+    {
+        String f = function (program);
+        StringBuilder out = new StringBuilder();
+        out.append("#compdef ").append(program).append('\n')
+            .append(f).append("_static () {\n")
+            .append("  local cmd= i\n")
+            .append("  local -a opts\n");
+        if (!spec.commands.isEmpty())
+        {
+            out.append("  for ((i = 2; i < CURRENT; i++)); do\n")
+                .append("    case $words[i] in\n");
+            for (String name : spec.commands.keySet())
+                out.append("      ").append(quote(name))
+                    .append(") cmd=$words[i]; break ;;\n");
+            out.append("    esac\n  done\n");
+        }
+        out.append("  case $cmd in\n");
+        for (Command command : spec.commands.values())
+            zsh_case (out, quote(command.name), command.spec(), false);
+        zsh_case (out, "*", spec, true);
+        out.append("  esac\n")
+            .append("  _describe option opts || _files\n}\n\n")
+            .append(f).append(" () {\n");
+        if (socket != null)
+        {
+            out.append("  local socket=")
+                .append(quote(socket.toAbsolutePath().toString()))
+                .append(" reply\n")
+                .append("  local -a client\n")
+                .append("  if [[ -S $socket ]]; then\n")
+                .append("    if (( $+commands[socat] )); then\n")
+                .append("      client=(socat -t 1 - UNIX-CONNECT:$socket)\n")
+                .append("    elif (( $+commands[nc] )); then\n")
+                .append("      client=(nc -U $socket)\n")
+                .append("    fi\n")
+                .append("    if (( $#client )) && reply=$(printf '%s\\0' ")
+                .append("$((CURRENT - 1)) $#words \"${words[@]}\" |\n")
+                .append("        $client 2>/dev/null); then\n")
+                .append("      if [[ -n $reply ]]; then\n")
+                .append("        compadd -- ${(f)reply}\n")
+                .append("      else\n")
+                .append("        _files\n")
+                .append("      fi\n")
+                .append("      return\n")
+                .append("    fi\n")
+                .append("  fi\n");
+        }
+        out.append("  ").append(f).append("_static\n}\n\n")
+            .append(f).append(" \"$@\"\n");
+        return out.toString();
+    }
+
+    private static void zsh_case (StringBuilder out, String pattern,
+                                  Spec spec, boolean commands)
+    {
+        out.append("    ").append(pattern).append(")\n");
+        String valued = valued (spec);
+        if (valued != null)
+            out.append("      case $words[CURRENT-1] in ").append(valued)
+                .append(") _files; return ;; esac\n");
+        out.append("      opts=(");
+        for (Option option : spec.options)
+        {
+            String description = ":" + option.description
+                .replace("\\", "\\\\").replace(":", "\\:");
+            if (option.flag != null)
+                out.append(' ')
+                    .append(quote(zsh_name("-" + option.flag) + description));
+            if (option.name != null)
+                out.append(' ')
+                    .append(quote(zsh_name("--" + option.name) + description));
+        }
+        if (commands)
+            for (Command command : spec.commands.values())
+                out.append(' ')
+                    .append(quote(zsh_name(command.name) + ":"
+                                  + command.description));
+        out.append(") ;;\n");
+    }
+
+    private static String zsh_name (String name)
+    {
+        return name.replace(":", "\\:");
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A resident completion server.  The server keeps the spec of a
+ * program loaded and answers the completion queries of the scripts
+ * generated by {@link Completion} on a Unix domain socket.  A query
+ * consists of the index of the word to complete, the number of words
+ * and the words, each terminated by a NUL byte.  The answer is a line
+ * for each completion, after which the server closes the connection.
+ * Queries are answered one after another on a single thread.  A
+ * connection, which has not been answered within {@link #TIMEOUT}
+ * milliseconds, is closed, so that a client, which does not send its
+ * query, can not block the others.
+ */
+public final class CompletionServer implements Runnable, AutoCloseable
+{
+    /** The maximal size of a query. */
+    private static final int LIMIT = 65536;
+
+    /** The milliseconds a connection may take. */
+    public static final long TIMEOUT = 1000;
+
+    /** The file type bits of the unix mode and the type of a socket. */
+    private static final int S_IFMT = 0170000, S_IFSOCK = 0140000;
+
+    private final Spec spec;
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ByteBuffer buffer = ByteBuffer.allocate(LIMIT);
+
+    /**
+     * Binds a completion server to a socket.  A socket left behind by
+     * a server, which was not closed, is removed.
+     *
+     * @param spec   the spec of the program
+     * @param socket the path of the socket
+     *
+     * @throws BindException if another server is running on the socket
+     * @throws FileAlreadyExistsException if the path is not a socket
+     * @throws IOException if the socket can not be bound
+     */
+    public CompletionServer (Spec spec, Path socket)
+        throws IOException
+    {
+        this.spec   = spec;
+        this.socket = socket;
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS))
+            remove_stale (socket);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try
+        {
+            server.bind (UnixDomainSocketAddress.of(socket));
+            selector = Selector.open();
+        }
+        catch (IOException e)
+        {
+            server.close ();
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the socket, if no server answers on it.
+     */
+    private static void remove_stale (Path socket)
+        throws IOException
+    {
+        if (!is_socket(socket))
+            throw new FileAlreadyExistsException
+                (socket.toString(), null, "not a socket");
+        try (SocketChannel channel =
+                 SocketChannel.open(StandardProtocolFamily.UNIX))
+        {
+            channel.connect (UnixDomainSocketAddress.of(socket));
+            throw new BindException
+                ("Completion server running on " + socket);
+        }
+        catch (BindException e)
+        {
+            throw e;
+        }
+        catch (IOException e)
+        {
+            // Nobody is listening.
+        }
+        Files.deleteIfExists (socket);
+    }
+
+    private static boolean is_socket (Path path)
+        throws IOException
+    {
+        try
+        {
+            int mode = (Integer)Files.getAttribute
+                (path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & S_IFMT) == S_IFSOCK;
+        }
+        catch (UnsupportedOperationException | IllegalArgumentException e)
+        {
+            // The type is unknown, so the file is kept.
+            return false;
+        }
+    }
+
+    /**
+     * Runs the server on a daemon thread.
+     *
+     * @return the thread
+     */
+    public Thread start ()
+    {
+        Thread thread = new Thread(this, "completion " + socket);
+        thread.setDaemon (true);
+        thread.start ();
+        return thread;
+    }
+
+    /**
+     * Answers queries until the server is closed.  A failing or slow
+     * query only closes its connection.
+     */
+    public void run ()
+    {
+        while (server.isOpen())
+        {
+            try (SocketChannel client = server.accept())
+            {
+                client.configureBlocking (false);
+                SelectionKey key = client.register (selector, 0);
+                try
+                {
+                    answer (client, key, System.nanoTime()
+                            + TIMEOUT * 1000000);
+                }
+                finally
+                {
+                    key.cancel ();
+                    selector.selectNow ();
+                }
+            }
+            catch (ClosedChannelException e)
+            {
+                return;
+            }
+            catch (IOException | RuntimeException e)
+            {
+                // Errors of a query are ignored, the shell only
+                // falls back to the static completion.
+            }
+        }
+    }
+
+    /**
+     * Waits until the client is ready for the operation.
+     *
+     * @throws SocketTimeoutException if the deadline has passed
+     */
+    private void await (SelectionKey key, int operation, long deadline)
+        throws IOException
+    {
+        long remaining = (deadline - System.nanoTime()) / 1000000;
+        if (remaining <= 0)
+            throw new SocketTimeoutException ("Completion query too slow");
+        key.interestOps (operation);
+        selector.select (remaining);
+        selector.selectedKeys().clear();
+    }
+
+    /** Reads a query and writes the completions. */
+    private void answer (SocketChannel client, SelectionKey key,
+                         long deadline)
+        throws IOException
+    {
+        buffer.clear ();
+        List<String> fields = new ArrayList<String>();
+        int start = 0;
+        int count = -1;
+        while (count < 0 || fields.size() < count + 2)
+        {
+            int position = buffer.position();
+            if (!buffer.hasRemaining())
+                return;
+            int read = client.read(buffer);
+            if (read < 0)
+                return;
+            if (read == 0)
+                await (key, SelectionKey.OP_READ, deadline);
+            for (int i = position; i < buffer.position(); i++)
+                if (buffer.get(i) == 0)
+                {
+                    fields.add (new String(buffer.array(), start, i - start,
+                                           StandardCharsets.UTF_8));
+                    start = i + 1;
+                    if (fields.size() == 2)
+                        count = Integer.parseInt(fields.get(1));
+                }
+        }
+        int current = Integer.parseInt(fields.get(0));
+        StringBuilder out = new StringBuilder();
+        for (String completion :
+                 Completion.complete(spec, fields.subList(2, count + 2),
+                                     current))
+            out.append(completion).append('\n');
+        ByteBuffer reply =
+            ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+        while (reply.hasRemaining())
+            if (client.write(reply) == 0)
+                await (key, SelectionKey.OP_WRITE, deadline);
+    }
+
+    /**
+     * Stops the server and removes the socket file.
+     *
+     * @throws IOException if the socket file can not be removed
+     */
+    public void close ()
+        throws IOException
+    {
+        server.close ();
+        selector.close ();
+        Files.deleteIfExists (socket);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.Arrays;
+
+/**
+ * Conversions of option values into primitive types.  Conversion
+ * errors are reported as {@link InvalidOptionException} naming the
+ * option.
+ */
+final class Convert
+{
+    private Convert () {}
+
+    private static InvalidOptionException invalid (String id, int index,
+                                                   String value, String type)
+    {
+        return new InvalidOptionException
+            (ParseError.invalid_value (id, index, type + ": " + value));
+    }
+
+    private static String missing (String id, int index, String value)
+    {
+        if (value == null)
+            throw new InvalidOptionException
+                (ParseError.missing_value (id, -1, index));
+        return value;
+    }
+
+    /**
+     * Converts the value starting at the offset in the argument.
+     *
+     * @throws InvalidOptionException
+     */
+    static long to_long (String id, int index,
+                         String argument, int offset)
+    {
+        missing (id, index, argument);
+        try
+        {
+            return Long.parseLong (argument, offset, argument.length(), 10);
+        }
+        catch (NumberFormatException e)
+        {
+            throw invalid (id, index, argument.substring(offset),
+                           "an integer");
+        }
+    }
+
+    /**
+     * @throws InvalidOptionException
+     */
+    static int to_int (String id, int index, long value)
+    {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw invalid (id, index, String.valueOf(value), "an int");
+        return (int)value;
+    }
+
+    /**
+     * @throws InvalidOptionException
+     */
+    static double to_double (String id, int index, String value)
+    {
+        missing (id, index, value);
+        try
+        {
+            return Double.parseDouble (value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw invalid (id, index, value, "a number");
+        }
+    }
+
+    /**
+     * Accepts true, yes, on and 1 as true and false, no, off and 0 as
+     * false, ignoring case.
+     *
+     * @throws InvalidOptionException
+     */
+    static boolean to_boolean (String id, int index, String value)
+    {
+        missing (id, index, value);
+        if (value.equalsIgnoreCase("true") ||
+            value.equalsIgnoreCase("yes") ||
+            value.equalsIgnoreCase("on") ||
+            value.equals("1"))
+            return true;
+        if (value.equalsIgnoreCase("false") ||
+            value.equalsIgnoreCase("no") ||
+            value.equalsIgnoreCase("off") ||
+            value.equals("0"))
+            return false;
+        throw invalid (id, index, value, "a boolean");
+    }
+
+    /**
+     * Accepts the name of a constant or the name in lower case with
+     * hyphens instead of underscores.
+     *
+     * @throws InvalidOptionException
+     */
+    static <E extends Enum<E>> E to_enum (String id, int index,
+                                          String value, Class<E> type)
+    {
+        missing (id, index, value);
+        try
+        {
+            return Enum.valueOf (type, value);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Try the lower case spelling.
+        }
+        String name = value.replace('-', '_');
+        for (E constant : type.getEnumConstants())
+            if (constant.name().equalsIgnoreCase(name))
+                return constant;
+        throw invalid (id, index, value, "one of " +
+                       Arrays.toString(type.getEnumConstants()));
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.Arrays;
+
+/**
+ * Passes what the parser recognizes to a listener.
+ */
+final class Dispatch extends Sink
+{
+    private static final String[] NO_VALUES = new String[0];
+
+    private final Listener listener;
+    private String[] values = null;
+    private int count = 0;
+
+    Dispatch (Listener listener)
+    {
+        this.listener = listener;
+    }
+
+    void option (Option option)
+    {
+        values = option.required_values == 0
+            ? NO_VALUES
+            : new String[option.required_values];
+        count = 0;
+    }
+
+    void value (Option option, int index,
+                CharSequence argument, int a, int offset)
+    {
+        if (index == values.length)
+            values = Arrays.copyOf (values, Math.max(4, 2 * index));
+        values[index] = offset == 0
+            ? argument.toString()
+            : argument.subSequence(offset, argument.length()).toString();
+        count = index + 1;
+    }
+
+    /**
+     * @throws InvalidOptionException
+     */
+    void end (Option option)
+    {
+        if (option.variadic && count < values.length)
+            values = Arrays.copyOf (values, count);
+        for (int v = 0; v < values.length; v++)
+            if (values[v] == null)
+                if (option.has_default())
+                    values[v] = option.default_values[v];
+                else
+                    throw new InvalidOptionException
+                        (ParseError.missing_value
+                         (option.id(), option.required_values, v));
+        listener.on_option (option.flag, option.name, values);
+        values = null;
+    }
+
+    void positional (CharSequence argument, int a)
+    {
+        listener.on_positional (argument.toString());
+    }
+
+    void terminator (int a)
+    {
+        listener.on_terminator ();
+    }
+
+    Sink command (Command command, int a)
+    {
+        listener.on_command (command.name);
+        return this;
+    }
+}
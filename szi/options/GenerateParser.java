@@ -0,0 +1,48 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests a parser generated at compile time for a class with
+ * {@link Opt} annotated fields.  For a class <code>Calc</code> the
+ * {@link ParserProcessor} generates the class <code>CalcParser</code>
+ * in the same package with the methods
+ * <code>parse(Calc, String[])</code>, which assigns the options
+ * directly to the fields and returns the non option arguments, and
+ * <code>print_usage(PrintStream)</code>.  The annotated fields must
+ * not be private or final.
+ *
+ * @see ParserProcessor
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateParser
+{
+    /** The about header of the usage text. */
+    String[] about () default {};
+
+    /** The usage header of the usage text. */
+    String[] usage () default {};
+}
@@ -0,0 +1,128 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * A group of options checked together after a parse.  The members
+ * are kept as a bit mask over the ordinals of the options, so that
+ * the group is checked with a few bitwise operations on the presence
+ * bits of a result, however many options the spec has.
+ */
+final class Group
+{
+    /**
+     * The kinds of groups.
+     */
+    enum Kind
+    {
+        /** At most one member may be set. */
+        EXCLUSIVE,
+        /** Exactly one member must be set. */
+        ONE_OF,
+        /** If the first member is set, all others must be set, too. */
+        REQUIRES
+    }
+
+    final Kind   kind;
+    final String name;
+    final int[]  members;
+    private final long[] mask;
+
+    /**
+     * The mask covers the words up to the highest member only, so it
+     * does not depend on the number of options defined later.  The
+     * first member of a requirement is not part of the mask, because
+     * it is the option requiring the others.
+     *
+     * @param name    the name of the group or null for a requirement
+     * @param members the ordinals of the member options
+     */
+    Group (Kind kind, String name, int[] members)
+    {
+        int last = 0;
+        for (int m : members)
+            last = Math.max (last, m);
+        long[] mask = new long[(last >>> 6) + 1];
+        for (int m = kind == Kind.REQUIRES ? 1 : 0; m < members.length; m++)
+            mask[members[m] >>> 6] |= 1L << members[m];
+        this.kind    = kind;
+        this.name    = name;
+        this.members = members;
+        this.mask    = mask;
+    }
+
+    /**
+     * Checks the presence bits of a result.
+     *
+     * @return the error or null if the group is satisfied
+     */
+    ParseError check (long[] present, Option[] options)
+    {
+        if (kind == Kind.REQUIRES)
+        {
+            int first = members[0];
+            if ((present[first >>> 6] & 1L << first) == 0)
+                return null;
+            for (int w = 0; w < mask.length; w++)
+            {
+                long missing = mask[w] & ~present[w];
+                if (missing != 0)
+                    return ParseError.missing_dependency
+                        (options[first].id(),
+                         options[(w << 6) + Long.numberOfTrailingZeros
+                                 (missing)].id());
+            }
+            return null;
+        }
+        int set = 0;
+        for (int w = 0; w < mask.length; w++)
+            set += Long.bitCount (mask[w] & present[w]);
+        if (set > 1)
+        {
+            int first = -1;
+            for (int m : members)
+                if ((present[m >>> 6] & 1L << m) != 0)
+                    if (first < 0)
+                        first = m;
+                    else
+                        return ParseError.conflicting_options
+                            (options[first].id(), options[m].id());
+        }
+        if (set == 0 && kind == Kind.ONE_OF)
+        {
+            String[] ids = new String[members.length];
+            for (int m = 0; m < members.length; m++)
+                ids[m] = options[members[m]].id();
+            return ParseError.missing_option (ids);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the first member set or -1 if none is set.
+     */
+    int which (long[] present)
+    {
+        for (int m = 0; m < members.length; m++)
+            if ((present[members[m] >>> 6] & 1L << members[m]) != 0)
+                return m;
+        return -1;
+    }
+}
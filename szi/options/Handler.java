@@ -0,0 +1,35 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Handles an option of a parse result.  The handlers defined with
+ * {@link Options#on(String, java.util.function.Consumer)} and its
+ * variants are wrapped into handlers, which read the values from the
+ * result, and are kept in an array indexed by the ordinals of the
+ * options.
+ */
+interface Handler
+{
+    /**
+     * @throws InvalidOptionException if a value can not be converted
+     */
+    void handle (Result result, Option option);
+}
@@ -19,12 +19,82 @@
 
 package szi.options;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class InvalidOptionException extends RuntimeException
 {
     private static final long serialVersionUID = 0x47b52ba005c28598L;
 
+    private final ParseError[] errors;
+
     public InvalidOptionException (String s)
     {
         super (s);
+        errors = new ParseError[0];
+    }
+
+    /**
+     * Creates an exception, optionally without filling in the stack
+     * trace.  Skipping the stack trace makes the exception cheap, if
+     * invalid input is common.
+     *
+     * @param s           the message
+     * @param stack_trace false to skip the stack trace
+     */
+    public InvalidOptionException (String s, boolean stack_trace)
+    {
+        super (s, null, true, stack_trace);
+        errors = new ParseError[0];
+    }
+
+    /**
+     * Creates an exception for one or more parse errors.  The message
+     * is the message of the errors separated by semicolons.
+     *
+     * @param stack_trace false to skip the stack trace
+     * @param errors      the parse errors
+     */
+    public InvalidOptionException (boolean stack_trace, ParseError... errors)
+    {
+        super (message(errors), null, true, stack_trace);
+        this.errors = errors.clone();
+    }
+
+    /** @see #InvalidOptionException(boolean, ParseError...) */
+    public InvalidOptionException (ParseError... errors)
+    {
+        this (true, errors);
+    }
+
+    private static String message (ParseError[] errors)
+    {
+        StringBuilder message = new StringBuilder();
+        for (ParseError error : errors)
+        {
+            if (message.length() > 0)
+                message.append("; ");
+            message.append(error.message());
+        }
+        return message.toString();
+    }
+
+    /**
+     * Returns the first parse error or null if the exception has been
+     * created with a plain message.
+     */
+    public ParseError error ()
+    {
+        return errors.length > 0 ? errors[0] : null;
+    }
+
+    /**
+     * Returns the parse errors.  The list is empty if the exception
+     * has been created with a plain message.
+     */
+    public List<ParseError> errors ()
+    {
+        return Collections.unmodifiableList(Arrays.asList(errors));
     }
 }
@@ -0,0 +1,65 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Receives the options and arguments while they are parsed.  The
+ * listener is the event driven alternative to a {@link Result}: the
+ * parser calls the listener as soon as an option with all its values
+ * or a non option argument has been recognized and keeps nothing.
+ *
+ * @see Spec#parse(String[], Listener)
+ * @see Spec#parse(java.util.Iterator, Listener)
+ */
+public interface Listener
+{
+    /**
+     * Called for every option after all its values have been read.
+     * Values not given on the command line are filled with the
+     * default values.
+     *
+     * @param flag   the character of the option or null
+     * @param name   the long name of the option or null
+     * @param values the values of the option
+     */
+    void on_option (Character flag, String name, String[] values);
+
+    /**
+     * Called for every non option argument.
+     *
+     * @param argument the argument
+     */
+    void on_positional (String argument);
+
+    /**
+     * Called when the option termination <code>--</code> is found.
+     * All following arguments are passed to
+     * {@link #on_positional(String)}.
+     */
+    default void on_terminator () {}
+
+    /**
+     * Called when a command is found.  The following options and
+     * arguments belong to the command.
+     *
+     * @param name the name of the command
+     */
+    default void on_command (String name) {}
+}
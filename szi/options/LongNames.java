@@ -0,0 +1,306 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A compiled index of long option names.  The index matches directly
+ * against the characters of an argument without creating substrings.
+ * Exact names are looked up in an open addressing hash table.  Other
+ * arguments are matched with a trie, which accepts unique prefixes of
+ * long names as abbreviations.  An exact match always wins, even if
+ * the name is also the prefix of other names.
+ * <p>
+ * Both the hash table and the trie are stored flat in a byte buffer
+ * and refer to options by their ordinal plus one, zero meaning none.
+ * So the index can be written to a {@link SpecCache} file as it is
+ * and used directly from the mapped file.  The buffer starts with the
+ * size of the hash table and its slots, followed by the nodes of the
+ * trie starting with the root.  A node consists of the option whose
+ * name ends at the node, the only option below the node or zero if
+ * there are more, the number of children, the sorted characters of
+ * the children and the positions of the children in the buffer.
+ */
+final class LongNames
+{
+    private static final int OPTION   = 0;
+    private static final int UNIQUE   = 4;
+    private static final int COUNT    = 8;
+    private static final int KEYS     = 12;
+
+    private final Option[]   options;
+    private final ByteBuffer data;
+    private final int        mask;
+    private final int        root;
+
+    LongNames (Option[] options)
+    {
+        this.options = options;
+        List<Option> named = new ArrayList<Option>();
+        int chars = 0;
+        for (Option option : options)
+            if (option.name != null)
+            {
+                named.add (option);
+                chars += option.name.length();
+            }
+        // Keep the load factor of the hash table below one half.
+        int size = 2;
+        while (size < named.size() * 2)
+            size <<= 1;
+        // A node takes at most 12 bytes and every edge 6 bytes.
+        data = ByteBuffer.allocate (4 + 4 * size + 18 * (chars + 1));
+        data.putInt (size);
+        mask = size - 1;
+        for (Option option : named)
+        {
+            String name = option.name;
+            int i = hash (name, 0, name.length()) & mask;
+            while (slot(i) != 0 && !at(i).name.equals(name))
+                i = (i + 1) & mask;
+            data.putInt (4 + 4 * i, option.ordinal + 1);
+        }
+        data.position (4 + 4 * size);
+        Option[] sorted = named.toArray(new Option[named.size()]);
+        Arrays.sort (sorted, new Comparator<Option>() {
+                public int compare (Option a, Option b) {
+                    return a.name.compareTo(b.name);
+                }});
+        root = build (sorted, 0, sorted.length, 0);
+        data.limit (data.position());
+    }
+
+    /**
+     * Reads the index written by {@link #write(DataOutputStream)}.  The
+     * index keeps using the buffer.
+     *
+     * @param options the options of the spec by ordinal
+     */
+    LongNames (Option[] options, ByteBuffer in)
+    {
+        this.options = options;
+        int length = in.getInt();
+        ByteBuffer data = in.slice();
+        data.limit (length);
+        in.position (in.position() + length);
+        this.data = data;
+        int size  = data.getInt(0);
+        this.mask = size - 1;
+        this.root = 4 + 4 * size;
+    }
+
+    /**
+     * Writes the buffer of the index for the {@link SpecCache}.
+     */
+    void write (DataOutputStream out) throws IOException
+    {
+        // The buffer may be mapped from a cache file and read only.
+        byte[] bytes = new byte[data.limit()];
+        data.duplicate().position(0).get (bytes);
+        out.writeInt (bytes.length);
+        out.write (bytes);
+    }
+
+    private int slot (int i)
+    {
+        return data.getInt(4 + 4 * i);
+    }
+
+    private Option at (int i)
+    {
+        return options[slot(i) - 1];
+    }
+
+    private Option option (int ordinal)
+    {
+        return ordinal == 0 ? null : options[ordinal - 1];
+    }
+
+    private static int hash (CharSequence s, int from, int to)
+    {
+        int h = 0;
+        for (int i = from; i < to; i++)
+            h = 31 * h + s.charAt(i);
+        // Spread the bits, because similar names differ only in the
+        // last characters.
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches (String name,
+                                    CharSequence s, int from, int to)
+    {
+        if (name.length() != to - from)
+            return false;
+        for (int i = 0; i < name.length(); i++)
+            if (name.charAt(i) != s.charAt(from + i))
+                return false;
+        return true;
+    }
+
+    private Option exact (CharSequence s, int from, int to)
+    {
+        int i = hash (s, from, to) & mask;
+        for (int ordinal; (ordinal = slot(i)) != 0; i = (i + 1) & mask)
+        {
+            Option option = options[ordinal - 1];
+            if (matches (option.name, s, from, to))
+                return option;
+        }
+        return null;
+    }
+
+    /**
+     * Appends the node for the sorted options from the index lo to the
+     * index hi, whose names share the first depth characters.
+     *
+     * @return the position of the node
+     */
+    private int build (Option[] sorted, int lo, int hi, int depth)
+    {
+        int node = data.position();
+        // The names ending here come first.  If a name is defined
+        // twice, the last definition wins like in the hash table.
+        Option option = null;
+        int first = lo;
+        while (first < hi && sorted[first].name.length() == depth)
+            option = sorted[first++];
+        int count = 0;
+        for (int i = first; i < hi; i++)
+            if (i == first ||
+                sorted[i].name.charAt(depth) !=
+                sorted[i - 1].name.charAt(depth))
+                count++;
+        data.putInt (option == null ? 0 : option.ordinal + 1);
+        data.putInt (hi - lo == 1 ? sorted[lo].ordinal + 1 : 0);
+        data.putInt (count);
+        for (int i = first; i < hi; i++)
+            if (i == first ||
+                sorted[i].name.charAt(depth) !=
+                sorted[i - 1].name.charAt(depth))
+                data.putChar (sorted[i].name.charAt(depth));
+        int children = data.position();
+        data.position (children + 4 * count);
+        int child = 0;
+        for (int i = first; i < hi; )
+        {
+            char c = sorted[i].name.charAt(depth);
+            int end = i + 1;
+            while (end < hi && sorted[end].name.charAt(depth) == c)
+                end++;
+            data.putInt (children + 4 * child++,
+                         build (sorted, i, end, depth + 1));
+            i = end;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the position of the child of the node for the character
+     * or -1 if there is none.
+     */
+    private int child (int node, char c)
+    {
+        int count = data.getInt(node + COUNT);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            char key = data.getChar(node + KEYS + 2 * mid);
+            if (key < c)
+                lo = mid + 1;
+            else if (key > c)
+                hi = mid - 1;
+            else
+                return data.getInt(node + KEYS + 2 * count + 4 * mid);
+        }
+        return -1;
+    }
+
+    private int walk (CharSequence s, int from, int to)
+    {
+        int node = root;
+        for (int i = from; i < to && node >= 0; i++)
+            node = child (node, s.charAt(i));
+        return node;
+    }
+
+    /**
+     * Finds the option for a long name or an unique abbreviation of
+     * it.  The name is given by the characters of s from the index
+     * from to the index to.
+     *
+     * @return the option or null if the characters are no name and
+     *         no unique abbreviation
+     */
+    Option find (CharSequence s, int from, int to)
+    {
+        Option option = exact (s, from, to);
+        if (option != null)
+            return option;
+        int node = walk (s, from, to);
+        if (node < 0 || node == root)
+            return null;
+        option = option (data.getInt(node + OPTION));
+        if (option != null)
+            return option;
+        return option (data.getInt(node + UNIQUE));
+    }
+
+    /**
+     * Returns the option with the long name or null if there is none.
+     */
+    Option get (String name)
+    {
+        return exact (name, 0, name.length());
+    }
+
+    /**
+     * Returns the long names starting with the characters in
+     * alphabetical order.
+     */
+    List<String> candidates (CharSequence s, int from, int to)
+    {
+        List<String> candidates = new ArrayList<String>();
+        int node = walk (s, from, to);
+        if (node >= 0 && node != root)
+            collect (node, candidates);
+        return candidates;
+    }
+
+    private void collect (int node, List<String> candidates)
+    {
+        Option option = option (data.getInt(node + OPTION));
+        if (option != null)
+            candidates.add (option.name);
+        int count = data.getInt(node + COUNT);
+        for (int i = 0; i < count; i++)
+            collect (data.getInt(node + KEYS + 2 * count + 4 * i),
+                     candidates);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of a spec.  Every counter is a {@link LongAdder}, which
+ * spreads concurrent updates over several cells, so that threads
+ * parsing in parallel do not contend on a single counter.
+ */
+final class Metrics implements OptionsMetrics
+{
+    private final Spec        spec;
+    private final LongAdder   parses    = new LongAdder();
+    private final LongAdder   failures  = new LongAdder();
+    private final LongAdder[] hits;
+    private final LongAdder[] latencies = new LongAdder[BUCKETS];
+
+    Metrics (Spec spec)
+    {
+        this.spec = spec;
+        hits = new LongAdder[spec.options.length];
+        for (int o = 0; o < hits.length; o++)
+            hits[o] = new LongAdder();
+        for (int b = 0; b < BUCKETS; b++)
+            latencies[b] = new LongAdder();
+    }
+
+    /** Counts an option found by the parser. */
+    void hit (Option option)
+    {
+        hits[option.ordinal].increment();
+    }
+
+    /** Counts a parse. */
+    void parsed (long nanos, boolean failed)
+    {
+        parses.increment();
+        if (failed)
+            failures.increment();
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, nanos));
+        latencies[Math.min(bucket, BUCKETS - 1)].increment();
+    }
+
+    public long parses ()
+    {
+        return parses.sum();
+    }
+
+    public long failures ()
+    {
+        return failures.sum();
+    }
+
+    public long hits (String id)
+    {
+        Option option = spec.long_names.get(id);
+        if (option == null && id.length() == 1)
+            option = spec.short_option(id.charAt(0));
+        if (option == null)
+            option = spec.get_option(id);
+        return hits[option.ordinal].sum();
+    }
+
+    public Map<String,Long> hits ()
+    {
+        Map<String,Long> map = new LinkedHashMap<String,Long>();
+        for (Option option : spec.options)
+            map.put (option.id(), hits[option.ordinal].sum());
+        return map;
+    }
+
+    public long[] latencies ()
+    {
+        long[] counts = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++)
+            counts[b] = latencies[b].sum();
+        return counts;
+    }
+
+    public void reset ()
+    {
+        parses.reset();
+        failures.reset();
+        for (LongAdder adder : hits)
+            adder.reset();
+        for (LongAdder adder : latencies)
+            adder.reset();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares an option on a field or a record component.  The
+ * {@link Binder} builds the option spec from the annotations and
+ * assigns the parsed values.
+ *
+ * <pre>
+ * class Calc {
+ *     &#64;Opt(flag='a', name="add", description="Addition", arity=2)
+ *     int[] add;
+ *     &#64;Opt(name="verbose", description="Verbose output")
+ *     boolean verbose;
+ * }
+ * </pre>
+ *
+ * @see Binder
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface Opt
+{
+    /** The flag of a short option or zero for none. */
+    char flag () default 0;
+
+    /**
+     * The name of a long option.  If neither flag nor name are
+     * given, the name of the field is used.
+     */
+    String name () default "";
+
+    /** The description for the usage text. */
+    String description () default "";
+
+    /**
+     * The number of values.  By default boolean fields take no value,
+     * array fields need an explicit arity and all other fields take
+     * one value.
+     */
+    int arity () default -1;
+
+    /** The default values. */
+    String[] defaults () default {};
+}
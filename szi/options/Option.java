@@ -28,14 +28,47 @@ class Option
     final String    description;
     final int       required_values;
     final String[]  default_values;
+    final int       ordinal;
+    final int       slot;
+    /** The index of the occurrences in a parse result or -1. */
+    final int       repeat;
+    final boolean   variadic;
+    private final String id;
 
-    boolean  isset  = false;
-    String[] values = null;
+    /**
+     * @param ordinal the position of the option in the options list
+     * @param slot    the index of the first value in the value slots
+     *                of a parse result
+     *
+     * @throws InvalidOptionException
+     */
+    Option (int       ordinal,
+            int       slot,
+            Character flag,
+            String    name,
+            String    description,
+            int       required_values,
+            String... default_values)
+    {
+        this (ordinal, slot, -1, false, flag, name, description,
+              required_values, default_values);
+    }
 
     /**
+     * @param repeat   the index of the occurrences of a repeatable
+     *                 option in a parse result or -1 if the option is
+     *                 not repeatable
+     * @param variadic true if the option takes all following values;
+     *                 a variadic option must be repeatable and must not
+     *                 have required values
+     *
      * @throws InvalidOptionException
      */
-    Option (Character flag,
+    Option (int       ordinal,
+            int       slot,
+            int       repeat,
+            boolean   variadic,
+            Character flag,
             String    name,
             String    description,
             int       required_values,
@@ -57,33 +90,23 @@ class Option
         this.description     = description;
         this.required_values = required_values;
         this.default_values  = default_values;
-        this.values = new String[required_values];
+        this.ordinal         = ordinal;
+        this.slot            = slot;
+        this.repeat          = repeat;
+        this.variadic        = variadic;
+        this.id              = name != null ? name : flag.toString();
     }
         
     String id ()
     {
-        if (name != null)
-            return name;
-        if (flag != null)
-            return flag.toString();
-        return null;
+        return id;
     }
 
-    String value (int i)
+    String default_value (int i)
     {
-        if (values != null)
-            if (values[i] != null)
-                return values[i];
-            else
-                if (default_values != null)
-                    return default_values[i];
-                else
-                    return null;
-        else
-            if (default_values != null)
-                return default_values[i];
-            else
-                return null;
+        if (has_default())
+            return default_values[i];
+        return null;
     }
 
     boolean has_default ()
@@ -95,12 +118,9 @@ class Option
     {
         return "{flag=" + flag + ";name=" + name + ";description=" +
             description + ";required_values=" + required_values +
+            (variadic ? ";variadic" : repeat >= 0 ? ";repeatable" : "") +
             ";default_values=" +
             (default_values == null ? null : 
-             Arrays.toString((Object[])default_values)) +
-            ";values=" + 
-            (values == null ? null :
-             Arrays.toString((Object[])values))
-            + "}";
+             Arrays.toString((Object[])default_values)) + "}";
     }
 }
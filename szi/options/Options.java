@@ -20,18 +20,35 @@
 package szi.options;
 
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 public class Options
 {
     private List<Option>options_list = new LinkedList<Option>();
-    private Map<String,Option>options_hash = new HashMap<String,Option>();
+    private List<Command> commands = new ArrayList<Command>();
+    private List<Group> groups = new ArrayList<Group>();
+    private List<Handler> handlers = new ArrayList<Handler>();
+    private boolean defer_handlers = false;
+    private List<Validator[]> validators = new ArrayList<Validator[]>();
+    private List<String> variables = new ArrayList<String>();
+    private String env_prefix = null;
+    private Path config = null;
     private String[] about_text = null;
     private String[] usage_text = null;
+    private int value_slots = 0;
+    private int repeat_slots = 0;
+    private Spec spec = null;
+    private Result result = null;
 
     /**
      * Defines an option by adding it to the list of options and
@@ -59,16 +76,11 @@ public class Options
                            int       required_values,
                            String... default_values)
     {
-        Option option = new Option (flag, name, description,
-                                    required_values, default_values);
-        if (flag != null)
-            options_hash.put (flag.toString(), option);
-        if (name != null)
-            options_hash.put (name, option);
-        options_list.add (option);
-        return this;
+        return define (new Option (options_list.size(), value_slots,
+                                   flag, name, description,
+                                   required_values, default_values));
     }
-    
+
     /** @see #option(Character, String, String, int, String...) */
     public Options option (char      flag,
                            String    description,
@@ -126,27 +138,595 @@ public class Options
     }
 
     /**
+     * Defines a repeatable option.  Every occurrence of the option in
+     * the arguments is recorded with its values.  The accessors for
+     * single values return the values of the last occurrence,
+     * {@link Result#get_all(String)} returns the values of all
+     * occurrences and {@link Result#count(String)} the number of
+     * occurrences.  A repeatable option without values is a counter,
+     * like <code>-vvv</code> for more verbose output.
+     *
+     * @param flag            the character for a short option
+     * @param name            the long name of the option
+     * @param description     a short description for the help text
+     * @param required_values the number of values of each occurrence
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if flag and name are both null
+     */
+    public Options repeatable (Character flag,
+                               String    name,
+                               String    description,
+                               int       required_values)
+    {
+        return define (new Option (options_list.size(), value_slots,
+                                   repeat_slots, false,
+                                   flag, name, description,
+                                   required_values));
+    }
+
+    /**
+     * Defines a counter.  The option has no values and the number of
+     * occurrences can be read with {@link Result#count(String)}.
+     *
+     * @see #repeatable(Character, String, String, int)
+     */
+    public Options counter (Character flag,
+                            String    name,
+                            String    description)
+    {
+        return repeatable (flag, name, description, 0);
+    }
+
+    /**
+     * Defines a variadic option.  The option takes all following
+     * arguments up to the next option or the option termination as
+     * values, so <code>--files a b c</code> has three values.  A value
+     * attached to a short option like <code>-Ia</code> is the first
+     * value.  The option may occur several times and
+     * {@link Result#get_all(String)} returns the values of all
+     * occurrences.
+     *
+     * @param flag        the character for a short option
+     * @param name        the long name of the option
+     * @param description a short description for the help text
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if flag and name are both null
+     */
+    public Options variadic (Character flag,
+                             String    name,
+                             String    description)
+    {
+        return define (new Option (options_list.size(), value_slots,
+                                   repeat_slots, true,
+                                   flag, name, description, 0));
+    }
+
+    private Options define (Option option)
+    {
+        options_list.add (option);
+        if (option.repeat >= 0)
+            repeat_slots++;
+        handlers.add (null);
+        validators.add (null);
+        variables.add (null);
+        value_slots += option.required_values;
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Defines a command like <code>git commit</code>.  The options
+     * before the command are parsed with these options, the options
+     * and arguments after the command with the options of the command.
+     * The first non option argument is the command, so global options
+     * must be given before the command.
+     * <p>
+     * The options of the command are created by the supplier, when
+     * the command is found in the arguments for the first time.
+     * Commands, which are not used, cost nothing but their entry in
+     * the usage text.
+     *
+     * @param name        the name of the command
+     * @param description a short description for the help text
+     * @param options     the supplier of the options of the command
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if the name is defined twice
+     */
+    public Options command (String            name,
+                            String            description,
+                            Supplier<Options> options)
+    {
+        Command command = new Command (name, description, options);
+        for (Command other : commands)
+            if (other.name.equals(name))
+                throw new InvalidOptionException
+                    ("Duplicate command: " + name);
+        commands.add (command);
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Defines a group of mutually exclusive options.  At most one of
+     * the options may be given in the arguments.  The option given can
+     * be found with {@link #which_of(String)}.  Options are identified
+     * by their long name or, if they have none, by their flag.  The
+     * options must be defined before the group.
+     *
+     * @param group   the name of the group
+     * @param options the options of the group
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if the name is defined twice or
+     *                                an option is undefined
+     */
+    public Options exclusive (String group, String... options)
+    {
+        return group (Group.Kind.EXCLUSIVE, group, options);
+    }
+
+    /**
+     * Defines a group of mutually exclusive options, one of which is
+     * required.  Exactly one of the options must be given in the
+     * arguments.
+     *
+     * @see #exclusive(String, String...)
+     */
+    public Options one_of (String group, String... options)
+    {
+        return group (Group.Kind.ONE_OF, group, options);
+    }
+
+    /**
+     * Defines options required by an option.  If the option is given
+     * in the arguments, the required options must be given, too.
+     *
+     * @param option   the option requiring the others
+     * @param required the options required
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if an option is undefined
+     */
+    public Options requires (String option, String... required)
+    {
+        String[] members = new String[required.length + 1];
+        members[0] = option;
+        System.arraycopy (required, 0, members, 1, required.length);
+        return group (Group.Kind.REQUIRES, null, members);
+    }
+
+    private Options group (Group.Kind kind, String name, String[] options)
+    {
+        if (name != null)
+            for (Group other : groups)
+                if (name.equals(other.name))
+                    throw new InvalidOptionException
+                        ("Duplicate group: " + name);
+        int[] members = new int[options.length];
+        for (int m = 0; m < options.length; m++)
+            members[m] = defined(options[m]).ordinal;
+        groups.add (new Group (kind, name, members));
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Returns the option with the long name or, if there is none, the
+     * flag.
+     *
      * @throws InvalidOptionException
      */
-    private Option get_option (char flag)
+    private Option defined (String id)
     {
-        Option option = options_hash.get(String.valueOf(flag));
-        if (option == null)
-            throw new InvalidOptionException
-                ("Undefined short option: -" + flag);
-        return option;
+        for (Option option : options_list)
+            if (id.equals(option.name))
+                return option;
+        if (id.length() == 1)
+            for (Option option : options_list)
+                if (option.flag != null && option.flag == id.charAt(0))
+                    return option;
+        throw new InvalidOptionException ("Undefined option: " + id);
+    }
+
+    /**
+     * Defines the handler of an option.  The handler is called with
+     * the values of the option, as soon as the option and its values
+     * have been parsed, or after the check of the parse result, if the
+     * handlers are deferred.  The handler is called for every
+     * occurrence of the option.  A handler replaces the previous
+     * handler of the option.
+     * <p>
+     * The handlers are called by the parse methods returning a result,
+     * not by the parse methods passing the options to a listener.
+     *
+     * @param option  the long name or, if there is none, the flag
+     * @param handler the handler receiving the values
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if the option is undefined
+     *
+     * @see #defer_handlers()
+     */
+    public Options on (String option, final Consumer<String[]> handler)
+    {
+        return handler (option, 0, new Handler() {
+                public void handle (Result result, Option option) {
+                    handler.accept (result.values(option));
+                }});
     }
 
     /**
+     * Defines the handler of an option without values.
+     *
+     * @see #on(String, Consumer)
+     */
+    public Options on (String option, final Runnable handler)
+    {
+        return handler (option, 0, new Handler() {
+                public void handle (Result result, Option option) {
+                    handler.run ();
+                }});
+    }
+
+    /**
+     * Defines the handler of an option receiving the first value
+     * converted to an int.
+     *
+     * @see #on(String, Consumer)
+     * @see Result#get_int(String)
+     */
+    public Options on_int (String option, final IntConsumer handler)
+    {
+        return handler (option, 1, new Handler() {
+                public void handle (Result result, Option option) {
+                    handler.accept (result.to_int(option, 0));
+                }});
+    }
+
+    /**
+     * Defines the handler of an option receiving the first value
+     * converted to a long.
+     *
+     * @see #on(String, Consumer)
+     * @see Result#get_long(String)
+     */
+    public Options on_long (String option, final LongConsumer handler)
+    {
+        return handler (option, 1, new Handler() {
+                public void handle (Result result, Option option) {
+                    handler.accept (result.to_long(option, 0));
+                }});
+    }
+
+    /**
+     * Defines the handler of an option receiving the first value
+     * converted to a double.
+     *
+     * @see #on(String, Consumer)
+     * @see Result#get_double(String)
+     */
+    public Options on_double (String option, final DoubleConsumer handler)
+    {
+        return handler (option, 1, new Handler() {
+                public void handle (Result result, Option option) {
+                    handler.accept (result.to_double(option, 0));
+                }});
+    }
+
+    /**
+     * @param values the number of values the handler reads
+     *
      * @throws InvalidOptionException
      */
-    private Option get_option (String name)
+    private Options handler (String id, int values, Handler handler)
     {
-        Option option = options_hash.get(name);
-        if (option == null)
+        Option option = defined (id);
+        if (option.required_values < values)
             throw new InvalidOptionException
-                ("Undefined long option: --" + name);
-        return option;
+                ("Option has no value: " + id);
+        handlers.set (option.ordinal, handler);
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Defers the handlers until the parse result has been checked.
+     * The handlers are then called only if the arguments are valid, in
+     * the order of the definition of the options and once per option.
+     * The handlers of repeatable options receive the values of all
+     * occurrences.
+     *
+     * @return the options object
+     */
+    public Options defer_handlers ()
+    {
+        defer_handlers = true;
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Requires the values of an option to be integers in a range.  The
+     * values are checked while the arguments are parsed and an invalid
+     * value is reported as an {@link InvalidOptionException} with a
+     * {@link ParseError} of the kind
+     * {@link ParseError.Kind#INVALID_VALUE}.  The values from the
+     * environment and the config file are checked when they are read.
+     * Default values are not checked.  An option can have several
+     * checks, which must all pass.
+     *
+     * @param option the name or flag of an option with values
+     * @param min    the smallest valid value
+     * @param max    the largest valid value
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if the option is undefined or has
+     *                                no values
+     */
+    public Options range (String option, long min, long max)
+    {
+        return validator (option, new Validator
+                          (Validator.Kind.INTEGER_RANGE,
+                           String.valueOf(min), String.valueOf(max)));
+    }
+
+    /**
+     * Requires the values of an option to be numbers in a range.
+     *
+     * @see #range(String, long, long)
+     */
+    public Options range (String option, double min, double max)
+    {
+        return validator (option, new Validator
+                          (Validator.Kind.NUMBER_RANGE,
+                           String.valueOf(min), String.valueOf(max)));
+    }
+
+    /**
+     * Requires the values of an option to match a regular expression
+     * as a whole.  The expression is compiled once.
+     *
+     * @throws InvalidOptionException if the expression is invalid
+     *
+     * @see #range(String, long, long)
+     */
+    public Options matches (String option, String regex)
+    {
+        return validator (option, new Validator
+                          (Validator.Kind.PATTERN, regex));
+    }
+
+    /**
+     * Requires the values of an option to be one of the given values.
+     *
+     * @see #range(String, long, long)
+     */
+    public Options allowed (String option, String... values)
+    {
+        return validator (option, new Validator
+                          (Validator.Kind.ALLOWED, values.clone()));
+    }
+
+    /**
+     * Requires the values of an option to be paths passing the checks,
+     * like an existing directory.
+     *
+     * @see #range(String, long, long)
+     */
+    public Options path (String option, PathCheck... checks)
+    {
+        String[] names = new String[checks.length];
+        for (int c = 0; c < checks.length; c++)
+            names[c] = checks[c].name();
+        return validator (option, new Validator
+                          (Validator.Kind.PATH, names));
+    }
+
+    private Options validator (String id, Validator validator)
+    {
+        Option option = defined (id);
+        if (option.required_values == 0 && !option.variadic)
+            throw new InvalidOptionException
+                ("Option has no value: " + id);
+        Validator[] checks = validators.get (option.ordinal);
+        if (checks == null)
+            checks = new Validator[] { validator };
+        else
+        {
+            checks = Arrays.copyOf (checks, checks.length + 1);
+            checks[checks.length - 1] = validator;
+        }
+        validators.set (option.ordinal, checks);
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Reads the values of an option from an environment variable, if
+     * the option is not given in the arguments.  Several values are
+     * separated by white space.  The environment is read lazily, when
+     * the value of the option is asked for.
+     *
+     * @param option   the name or flag of an option with values
+     * @param variable the name of the environment variable
+     *
+     * @return the options object
+     *
+     * @throws InvalidOptionException if the option is undefined or has
+     *                                no values
+     */
+    public Options env (String option, String variable)
+    {
+        Option defined = defined (option);
+        if (defined.required_values == 0 && !defined.variadic)
+            throw new InvalidOptionException
+                ("Option has no value: " + option);
+        variables.set (defined.ordinal, variable);
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Reads the values of all long options with values from environment
+     * variables named by the prefix and the name of the option in upper
+     * case with underscores instead of hyphens.  With the prefix
+     * <code>APP_</code> the option <code>--log-level</code> is read from
+     * <code>APP_LOG_LEVEL</code>.  Variables given by
+     * {@link #env(String, String)} take precedence.
+     *
+     * @param prefix the prefix of the variables
+     *
+     * @return the options object
+     */
+    public Options env_prefix (String prefix)
+    {
+        env_prefix = prefix;
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Reads the values of options not given in the arguments or the
+     * environment from a properties file.  The keys are the long names
+     * or the flags of the options.  The file is read when the first
+     * value is needed from it.  Every result reads the file once, so
+     * its values come from one version of the file.  The properties
+     * are shared by all parses until the modification time or the
+     * size of the file changes.  A missing file has no values, and a
+     * file created later is read by the next parse.
+     *
+     * @param file the properties file
+     *
+     * @return the options object
+     */
+    public Options config (Path file)
+    {
+        config = file;
+        spec = null;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Returns the sources of the values or null if there are none.
+     */
+    private Sources sources ()
+    {
+        String[] names = new String[options_list.size()];
+        boolean any = config != null;
+        int o = 0;
+        for (Option option : options_list)
+        {
+            String name = variables.get (o);
+            if (name == null && env_prefix != null && option.name != null &&
+                (option.required_values > 0 || option.variadic))
+                name = env_prefix +
+                    option.name.toUpperCase(Locale.ROOT).replace('-', '_');
+            names[o++] = name;
+            any |= name != null;
+        }
+        return any ? new Sources (names, config) : null;
+    }
+
+    /**
+     * Returns the number of occurrences of a short option.
+     *
+     * @see Result#count(char)
+     */
+    public int count (char flag)
+    {
+        return result().count(flag);
+    }
+
+    /** @see Result#count(String) */
+    public int count (String name)
+    {
+        return result().count(name);
+    }
+
+    /**
+     * Returns the values of all occurrences of a short option.
+     *
+     * @see Result#get_all(char)
+     */
+    public String[] get_all (char flag)
+    {
+        return result().get_all(flag);
+    }
+
+    /** @see Result#get_all(String) */
+    public String[] get_all (String name)
+    {
+        return result().get_all(name);
+    }
+
+    /**
+     * Returns which option of a group is given in the arguments.
+     *
+     * @see Result#which_of(String)
+     */
+    public int which_of (String group)
+    {
+        return result().which_of(group);
+    }
+
+    /**
+     * Returns the name of the command given in the arguments or null.
+     */
+    public String command ()
+    {
+        return result().command();
+    }
+
+    /**
+     * Returns the result of the options of the command given in the
+     * arguments or null.
+     */
+    public Result command_result ()
+    {
+        return result().command_result();
+    }
+
+    /**
+     * Compiles the defined options into an immutable spec.  The spec
+     * does not change, if further options are defined afterwards, and
+     * it can be shared by many threads, because every parse returns a
+     * separate result.
+     *
+     * @return the compiled spec
+     */
+    public Spec compile ()
+    {
+        if (spec == null)
+            spec = new Spec (options_list, commands, groups,
+                             handlers, defer_handlers, sources(),
+                             validators, about_text, usage_text);
+        return spec;
+    }
+
+    private Result result ()
+    {
+        if (result == null)
+            result = compile().empty();
+        return result;
     }
 
     /**
@@ -159,7 +739,7 @@ public class Options
      */
     public String get (char flag, int index)
     {
-        return get_option(flag).value(index);
+        return result().get(flag, index);
     }
 
     /**
@@ -169,7 +749,7 @@ public class Options
      */
     public String get (char flag)
     {
-        return get_option(flag).value(0);
+        return result().get(flag);
     }
 
     /**
@@ -182,7 +762,7 @@ public class Options
      */
     public String get (String name, int index)
     {
-        return get_option(name).value(index);
+        return result().get(name, index);
     }
 
     /**
@@ -192,7 +772,149 @@ public class Options
      */
     public String get (String name)
     {
-        return get_option(name).value(0);
+        return result().get(name);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to an int.
+     *
+     * @see Result#get_int(char, int)
+     */
+    public int get_int (char flag, int index)
+    {
+        return result().get_int(flag, index);
+    }
+
+    /** @see Result#get_int(char) */
+    public int get_int (char flag)
+    {
+        return result().get_int(flag);
+    }
+
+    /** @see Result#get_int(String, int) */
+    public int get_int (String name, int index)
+    {
+        return result().get_int(name, index);
+    }
+
+    /** @see Result#get_int(String) */
+    public int get_int (String name)
+    {
+        return result().get_int(name);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to a long.
+     *
+     * @see Result#get_long(char, int)
+     */
+    public long get_long (char flag, int index)
+    {
+        return result().get_long(flag, index);
+    }
+
+    /** @see Result#get_long(char) */
+    public long get_long (char flag)
+    {
+        return result().get_long(flag);
+    }
+
+    /** @see Result#get_long(String, int) */
+    public long get_long (String name, int index)
+    {
+        return result().get_long(name, index);
+    }
+
+    /** @see Result#get_long(String) */
+    public long get_long (String name)
+    {
+        return result().get_long(name);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to a double.
+     *
+     * @see Result#get_double(char, int)
+     */
+    public double get_double (char flag, int index)
+    {
+        return result().get_double(flag, index);
+    }
+
+    /** @see Result#get_double(char) */
+    public double get_double (char flag)
+    {
+        return result().get_double(flag);
+    }
+
+    /** @see Result#get_double(String, int) */
+    public double get_double (String name, int index)
+    {
+        return result().get_double(name, index);
+    }
+
+    /** @see Result#get_double(String) */
+    public double get_double (String name)
+    {
+        return result().get_double(name);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to a boolean.
+     *
+     * @see Result#get_boolean(char, int)
+     */
+    public boolean get_boolean (char flag, int index)
+    {
+        return result().get_boolean(flag, index);
+    }
+
+    /** @see Result#get_boolean(char) */
+    public boolean get_boolean (char flag)
+    {
+        return result().get_boolean(flag);
+    }
+
+    /** @see Result#get_boolean(String, int) */
+    public boolean get_boolean (String name, int index)
+    {
+        return result().get_boolean(name, index);
+    }
+
+    /** @see Result#get_boolean(String) */
+    public boolean get_boolean (String name)
+    {
+        return result().get_boolean(name);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to an enum
+     * constant.
+     *
+     * @see Result#get_enum(char, int, Class)
+     */
+    public <E extends Enum<E>> E get_enum (char flag, int index, Class<E> type)
+    {
+        return result().get_enum(flag, index, type);
+    }
+
+    /** @see Result#get_enum(char, Class) */
+    public <E extends Enum<E>> E get_enum (char flag, Class<E> type)
+    {
+        return result().get_enum(flag, type);
+    }
+
+    /** @see Result#get_enum(String, int, Class) */
+    public <E extends Enum<E>> E get_enum (String name, int index,
+                                           Class<E> type)
+    {
+        return result().get_enum(name, index, type);
+    }
+
+    /** @see Result#get_enum(String, Class) */
+    public <E extends Enum<E>> E get_enum (String name, Class<E> type)
+    {
+        return result().get_enum(name, type);
     }
 
     /**
@@ -204,7 +926,7 @@ public class Options
      */
     public boolean isset (char flag)
     {
-        return get_option(flag).isset;
+        return result().isset(flag);
     }
 
     /**
@@ -216,26 +938,39 @@ public class Options
      */
     public boolean isset (String name)
     {
-        return get_option(name).isset;
+        return result().isset(name);
     }
 
     /**
-     * Check if all required values are defined.
+     * Starts counting parses and options in the compiled spec.  If
+     * further options are defined afterwards, the new spec starts
+     * without metrics.
      *
-     * @throws InvalidOptionException
+     * @return the metrics
+     *
+     * @see Spec#enable_metrics()
      */
-    private void check ()
+    public OptionsMetrics enable_metrics ()
     {
-        for (Option option : options_list)
-            if (option.isset &&
-                option.required_values > 0 &&
-                !option.has_default())
-                for (int v = 0; v < option.required_values; v++)
-                    if (option.values[v] == null)
-                        throw new InvalidOptionException
-                            ("Option value " + v + " missing for option: " +
-                             option.flag != null ? option.flag.toString() :
-                             option.name);
+        return compile().enable_metrics();
+    }
+
+    /**
+     * Reads the options from a file, which can be reloaded while the
+     * program runs.
+     *
+     * @param file the file with the arguments
+     *
+     * @return the reloadable options
+     *
+     * @throws InvalidOptionException if the file can not be read or
+     *                                contains invalid arguments
+     *
+     * @see Reloadable
+     */
+    public Reloadable reloadable (Path file)
+    {
+        return new Reloadable (compile(), file);
     }
 
     /**
@@ -253,95 +988,19 @@ public class Options
      */
     public void print_usage (PrintStream out)
     {
-        // Display header
-        if (about_text != null)
-            for (String line : about_text)
-                out.println(line);
-        if (usage_text != null)
-            if (usage_text.length == 1)
-            {
-                out.print("Usage: ");
-                out.println(usage_text[0]);
-            }
-            else
-            {
-                out.println("Usage:");
-                for (String line : usage_text)
-                {
-                    out.print("  ");
-                    out.println(line);
-                }
-            }
-        // Display options
-        out.println("Options:");
-        int max_name = 0;
-        int max_vals = 0;
-        for (Option option : options_list)
-            if (option.name != null)
-            {
-                if (option.name.length() > max_name)
-                    max_name = option.name.length();
-                if (option.default_values != null &&
-                    option.required_values > max_vals)
-                    max_vals = option.required_values;
-            }
-        for (Option option : options_list)
-        {
-            out.print("  ");
-            // Display short option
-            if (option.flag != null)
-            {
-                out.print('-');
-                out.print(option.flag);
-            }
-            else
-                out.print("  ");
-            if (option.flag != null && option.name != null)
-                out.print(',');
-            else
-                out.print(' ');
-            // Display long option
-            if (option.name != null)
-            {
-                out.print(" --");
-                out.print(option.name);
-                for (int i = option.name.length(); i < max_name; i++)
-                    out.print(' ');
-            }
-            else
-            {
-                out.print("   ");
-                for (int i = 0; i < max_name; i++)
-                    out.print(' ');
-            }
-            for (int i = 0; i < Math.min(8, max_vals); i++)
-                if (option.required_values > 8 && i > 6)
-                    out.print ("..");
-                else
-                    if (i < option.required_values)
-                    {
-                        out.print (' ');
-                        out.print ((char)((int)'A' + i));
-                    }
-                    else
-                        out.print ("  ");
-            out.print("  ");
-            // Display description.
-            out.print(option.description);
-            // Display default values.
-            if (option.default_values != null && 
-                option.default_values.length > 0)
-            {
-                out.print (" (default:");
-                for (String value : option.default_values)
-                {
-                    out.print (' ');
-                    out.print (value);
-                }
-                out.print (")");
-            }
-            out.println();
-        }
+        compile().print_usage(out);
+    }
+
+    /**
+     * Print the usage text wrapped to the width of a terminal to the
+     * specified print stream.
+     *
+     * @param out   the output print stream
+     * @param width the number of columns or zero for no wrapping
+     */
+    public void print_usage (PrintStream out, int width)
+    {
+        compile().print_usage(out, width);
     }
 
     /**
@@ -352,6 +1011,7 @@ public class Options
     public Options about (String... text)
     {
         about_text = text;
+        spec = null;
         return this;
     }
 
@@ -363,6 +1023,7 @@ public class Options
     public Options usage (String... text)
     {
         usage_text = text;
+        spec = null;
         return this;
     }
 
@@ -381,9 +1042,17 @@ public class Options
      * <p>
      * <ul><li>--help</li><li>--add 1 2</li><li>--debug hi</li></ul>
      * <p>
+     * A long option can be abbreviated by any prefix of its name,
+     * which is not the prefix of another name.  An exact name always
+     * matches, even if it is the prefix of another name.
+     * <p>
      * Two hyphens without any name terminate the option list.  All
      * options following the termination are returned as remaining
      * arguments.
+     * <p>
+     * If commands are defined, the first remaining argument is the
+     * command and the remaining arguments of the command are
+     * returned.
      *
      * @param arguments the list of command line arguments
      *
@@ -393,92 +1062,28 @@ public class Options
      */
     public String[] parse (String[] arguments)
     {
-        List<String> argument_list = new LinkedList<String>();
+        result = compile().parse(arguments);
+        Result command = result.command_result();
+        return command != null ? command.arguments() : result.arguments();
+    }
 
-        for (int a = 0; a < arguments.length; a++)
-        {
-            String argument = arguments[a];
-            if (argument.length() > 0 && argument.charAt(0) == '-')
-                // This is an option.
-                if (argument.length() > 1 && argument.charAt(1) == '-')
-                    if (argument.length() == 2)
-                        // This is the option termination.
-                        for (a++; a < arguments.length; a++)
-                            argument_list.add (arguments[a]);
-                    else
-                    {
-                        // This is a long option.
-                        Option option = get_option (argument.substring (2));
-                        option.isset = true;
-                        // Peek next argument.
-                        {
-                            int a1 = a + 1; // look ahead
-                            if (a1 < arguments.length && 
-                                arguments[a1].length() > 0 &&
-                                arguments[a1].charAt(0) == '-')
-                                // The next argument is an option and no
-                                // argument.
-                                if (option.has_default())
-                                    // This is ok if we have default values.
-                                    continue;
-                                else
-                                    throw new InvalidOptionException
-                                        ("Argument missing for option: "
-                                         + option.id());
-                            else
-                                if (a1 >= arguments.length &&
-                                    option.has_default())
-                                    // There are no further arguments
-                                    // but we have a default value.
-                                    continue;
-                        }
-                        // The next arguments must be values.
-                        for (int v = 0; v < option.required_values; v++)
-                            if (++a < arguments.length)
-                                option.values[v] = arguments[a];
-                            else
-                                throw new InvalidOptionException
-                                    ("Argument missing for option: "
-                                     + option.id());
-                    }
-                else
-                {
-                    // This is a short option.
-                    for (int i = 1; i < argument.length(); i++)
-                    {
-                        Option option = get_option(argument.charAt(i));
-                        option.isset = true;
-                        if (option.required_values > 0)
-                        {
-                            int v = 0;
-                            String rest = argument.substring(++i);
-                            if (rest.length() > 0)
-                                // If pressent the remaining part of
-                                // the argument is the value.
-                                option.values[v++] = rest;
-
-                            for (; v < option.required_values; v++)
-                            {
-                                // Otherwise the next argument is the
-                                // value.
-                                a++;
-                                if (a < arguments.length)
-                                    option.values[v] = arguments[a];
-                                else
-                                    throw new InvalidOptionException
-                                        ("Argument missing for option: "
-                                         + option.id());
-                            }
-                            break;
-                        }
-                    }
-                }
-            else
-                // This is an argument and no option.
-                argument_list.add(arguments[a]);
-        }
-        check();
-        return argument_list.toArray(new String[0]);
+    /**
+     * Parse a command line split into arguments like a POSIX shell
+     * does.
+     *
+     * @param line the command line
+     *
+     * @return the list of non option arguments
+     *
+     * @throws InvalidOptionException
+     *
+     * @see Spec#parse(CharSequence)
+     */
+    public String[] parse (CharSequence line)
+    {
+        result = compile().parse(line);
+        Result command = result.command_result();
+        return command != null ? command.arguments() : result.arguments();
     }
 
     public String toString()
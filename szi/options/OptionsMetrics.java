@@ -0,0 +1,76 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.Map;
+
+/**
+ * Counters of a spec: how often it parsed, how often that failed, how
+ * long parsing took and how often each option was given.  The
+ * counters are kept only after {@link Spec#enable_metrics()} has been
+ * called.  Before, parsing does not pay for them.
+ * <p>
+ * The counters are updated concurrently by all threads parsing with
+ * the spec and read without stopping them, so the values read at the
+ * same time may be slightly inconsistent.
+ */
+public interface OptionsMetrics
+{
+    /**
+     * The number of buckets of the latency histogram.  The bucket i
+     * counts the parses taking from 2^i up to 2^(i+1) nanoseconds.
+     * The first bucket counts parses below two nanoseconds, the last
+     * all slower parses.
+     */
+    int BUCKETS = 40;
+
+    /** Returns the number of parsed argument lists. */
+    long parses ();
+
+    /** Returns the number of argument lists with errors. */
+    long failures ();
+
+    /**
+     * Returns how often the option has been given.
+     *
+     * @param id the long name or the flag of the option
+     *
+     * @throws InvalidOptionException if the option is undefined
+     */
+    long hits (String id);
+
+    /**
+     * Returns how often every option has been given, keyed by the long
+     * name or the flag, in the order of definition.
+     */
+    Map<String,Long> hits ();
+
+    /**
+     * Returns the latency histogram.
+     *
+     * @return the counts of the buckets
+     *
+     * @see #BUCKETS
+     */
+    long[] latencies ();
+
+    /** Sets all counters to zero. */
+    void reset ();
+}
@@ -0,0 +1,333 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A structured description of an invalid option or option value.
+ * Parse errors are created without a stack trace, so they are cheap
+ * enough to be collected in bulk by {@link Spec#try_parse(String[])}.
+ */
+public final class ParseError implements Serializable
+{
+    private static final long serialVersionUID = 0x5a1b2c3d4e5f6071L;
+
+    /**
+     * The kinds of errors.
+     */
+    public enum Kind
+    {
+        /** A short option is not defined. */
+        UNDEFINED_SHORT,
+        /** A long option is not defined. */
+        UNDEFINED_LONG,
+        /** A command is not defined. */
+        UNDEFINED_COMMAND,
+        /** A long option is the prefix of several long names. */
+        AMBIGUOUS_LONG,
+        /** The arguments end or the next option starts before all
+         * values of an option have been read. */
+        MISSING_ARGUMENT,
+        /** An option is set, but a value has neither been given nor
+         * has a default. */
+        MISSING_VALUE,
+        /** A value can not be converted or is not valid. */
+        INVALID_VALUE,
+        /** Two options of an exclusive group are set. */
+        CONFLICTING_OPTIONS,
+        /** No option of a group requiring one is set. */
+        MISSING_OPTION,
+        /** An option is set without an option it requires. */
+        MISSING_DEPENDENCY
+    }
+
+    private final Kind   kind;
+    private final int    index;
+    private final String option;
+    private final int    arity;
+    private final int    value;
+    private final String detail;
+    /** The suggestions, found on demand with the index. */
+    private volatile String[] suggestions;
+    private final transient Suggestions suggester;
+
+    private static final String[] NONE = new String[0];
+
+    private ParseError (Kind kind, int index, String option,
+                        int arity, int value, String detail)
+    {
+        this (kind, index, option, arity, value, detail, NONE, null);
+    }
+
+    private ParseError (Kind kind, int index, String option,
+                        int arity, int value, String detail,
+                        String[] suggestions, Suggestions suggester)
+    {
+        this.kind        = kind;
+        this.index       = index;
+        this.option      = option;
+        this.arity       = arity;
+        this.value       = value;
+        this.detail      = detail;
+        this.suggestions = suggestions;
+        this.suggester   = suggester;
+    }
+
+    /**
+     * @param suggestion the defined flag differing only in case or
+     *                   null
+     */
+    static ParseError undefined_short (char flag, int index,
+                                       Character suggestion)
+    {
+        return new ParseError (Kind.UNDEFINED_SHORT, index, null, -1, -1,
+                               String.valueOf(flag),
+                               suggestion == null
+                               ? NONE
+                               : new String[] { "-" + suggestion },
+                               null);
+    }
+
+    /**
+     * @param names the long names closest to the argument
+     */
+    static ParseError undefined_long (String argument, int index,
+                                      String[] names)
+    {
+        return new ParseError (Kind.UNDEFINED_LONG, index, null, -1, -1,
+                               argument, hyphenate(names), null);
+    }
+
+    /**
+     * Creates the error for an undefined long option.  The suggestions
+     * are searched in the index, when they are needed for the first
+     * time, so that errors, which are only counted, stay cheap.
+     */
+    static ParseError undefined_long (String argument, int index,
+                                      Suggestions suggestions)
+    {
+        return new ParseError (Kind.UNDEFINED_LONG, index, null, -1, -1,
+                               argument, null, suggestions);
+    }
+
+    /**
+     * Creates the error for an undefined command.  The suggestions are
+     * searched in the index of the command names on demand.
+     */
+    static ParseError undefined_command (String name, int index,
+                                         Suggestions suggestions)
+    {
+        return new ParseError (Kind.UNDEFINED_COMMAND, index, null, -1, -1,
+                               name, null, suggestions);
+    }
+
+    private static String[] hyphenate (String[] names)
+    {
+        String[] options = new String[names.length];
+        for (int i = 0; i < names.length; i++)
+            options[i] = "--" + names[i];
+        return options;
+    }
+
+    private String[] hints ()
+    {
+        String[] hints = suggestions;
+        if (hints == null)
+            suggestions = hints = kind == Kind.UNDEFINED_COMMAND
+                ? suggester.suggest (detail)
+                : hyphenate (suggester.suggest (detail.substring(2)));
+        return hints;
+    }
+
+    private void writeObject (ObjectOutputStream out) throws IOException
+    {
+        hints();
+        out.defaultWriteObject();
+    }
+
+    static ParseError ambiguous_long (String argument, List<String> names,
+                                      int index)
+    {
+        return new ParseError (Kind.AMBIGUOUS_LONG, index, null, -1, -1,
+                               argument + " (" + String.join(", ", names)
+                               + ")");
+    }
+
+    static ParseError missing_argument (String option, int arity, int index)
+    {
+        return new ParseError (Kind.MISSING_ARGUMENT, index, option,
+                               arity, -1, null);
+    }
+
+    static ParseError missing_value (String option, int arity, int value)
+    {
+        return new ParseError (Kind.MISSING_VALUE, -1, option,
+                               arity, value, null);
+    }
+
+    static ParseError invalid_value (String option, int value, String detail)
+    {
+        return new ParseError (Kind.INVALID_VALUE, -1, option,
+                               -1, value, detail);
+    }
+
+    /**
+     * @param index the index of the argument or -1
+     */
+    static ParseError invalid_value (String option, int index, int value,
+                                     String detail)
+    {
+        return new ParseError (Kind.INVALID_VALUE, index, option,
+                               -1, value, detail);
+    }
+
+    /**
+     * @param option the first option set
+     * @param other  the option conflicting with the first
+     */
+    static ParseError conflicting_options (String option, String other)
+    {
+        return new ParseError (Kind.CONFLICTING_OPTIONS, -1, option,
+                               -1, -1, other);
+    }
+
+    /**
+     * @param options the options of the group
+     */
+    static ParseError missing_option (String[] options)
+    {
+        return new ParseError (Kind.MISSING_OPTION, -1, null, -1, -1,
+                               String.join(", ", options));
+    }
+
+    /**
+     * @param option   the option set
+     * @param required the option required but not set
+     */
+    static ParseError missing_dependency (String option, String required)
+    {
+        return new ParseError (Kind.MISSING_DEPENDENCY, -1, option,
+                               -1, -1, required);
+    }
+
+    /** Returns the kind of the error. */
+    public Kind kind ()
+    {
+        return kind;
+    }
+
+    /**
+     * Returns the index of the argument causing the error or -1 if
+     * the error is not related to a single argument.
+     */
+    public int index ()
+    {
+        return index;
+    }
+
+    /**
+     * Returns the identifier of the option, which is the long name or
+     * the flag, or null if the option is undefined.
+     */
+    public String option ()
+    {
+        return option;
+    }
+
+    /**
+     * Returns the number of values the option expects or -1 if
+     * unknown.
+     */
+    public int arity ()
+    {
+        return arity;
+    }
+
+    /**
+     * Returns the index of the affected option value or -1.
+     */
+    public int value ()
+    {
+        return value;
+    }
+
+    /**
+     * Returns the defined options closest to an undefined option with
+     * the hyphens or the commands closest to an undefined command,
+     * the closest first.  The list is empty for other
+     * errors.
+     */
+    public List<String> suggestions ()
+    {
+        return Collections.unmodifiableList(Arrays.asList(hints()));
+    }
+
+    /**
+     * Returns the error message.  The message is the same as the
+     * message of the exception thrown by {@link Spec#parse(String[])}.
+     */
+    public String message ()
+    {
+        switch (kind)
+        {
+        case UNDEFINED_SHORT:
+            return "Undefined short option: -" + detail + hint();
+        case UNDEFINED_LONG:
+            return "Undefined long option: " + detail + hint();
+        case UNDEFINED_COMMAND:
+            return "Undefined command: " + detail + hint();
+        case AMBIGUOUS_LONG:
+            return "Ambiguous long option: " + detail;
+        case MISSING_ARGUMENT:
+            return "Argument missing for option: " + option;
+        case MISSING_VALUE:
+            return "Option value " + value + " missing for option: " + option;
+        case CONFLICTING_OPTIONS:
+            return "Options " + option + " and " + detail +
+                " can not be used together";
+        case MISSING_OPTION:
+            return "One of the options required: " + detail;
+        case MISSING_DEPENDENCY:
+            return "Option " + option + " requires option: " + detail;
+        default:
+            return "Option value " + value + " of option " + option +
+                " is not " + detail;
+        }
+    }
+
+    private String hint ()
+    {
+        String[] hints = hints();
+        if (hints.length == 0)
+            return "";
+        return " (did you mean " + String.join(", ", hints) + "?)";
+    }
+
+    public String toString ()
+    {
+        return message();
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for parsing an argument list including the
+ * check of the values.
+ */
+@Name ("szi.options.Parse")
+@Label ("Parse Options")
+@Category ("Options")
+@Description ("Parsing an argument list")
+final class ParseEvent extends Event
+{
+    @Label ("Tokens")
+    @Description ("The number of arguments read")
+    int tokens;
+
+    @Label ("Options")
+    @Description ("The number of options of the spec")
+    int options;
+
+    @Label ("Error")
+    @Description ("The kind of the first error or null")
+    String error;
+}
@@ -0,0 +1,539 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates parsers for classes annotated with {@link GenerateParser}.
+ * The generated parser dispatches with a switch on the flag
+ * characters and the long names, assigns the values directly to the
+ * fields and holds the usage text as a constant, which is rendered at
+ * compile time by {@link Spec#render_usage()}.  It needs no
+ * reflection at run time.  The parsing rules are the same as those of
+ * {@link Spec#parse(String[])} and the fields are assigned like
+ * {@link Binder#bind(Object, Result)} does.
+ */
+@SupportedAnnotationTypes({"szi.options.GenerateParser", "szi.options.Opt"})
+public class ParserProcessor extends AbstractProcessor
+{
+    private static final int BOOLEAN      = 0;
+    private static final int INT          = 1;
+    private static final int LONG         = 2;
+    private static final int DOUBLE       = 3;
+    private static final int STRING       = 4;
+    private static final int ENUM         = 5;
+    private static final int STRING_ARRAY = 6;
+    private static final int INT_ARRAY    = 7;
+    private static final int LONG_ARRAY   = 8;
+    private static final int DOUBLE_ARRAY = 9;
+
+    /**
+     * An annotated field.
+     */
+    private static final class Field
+    {
+        VariableElement element;
+        String    field;
+        int       kind;
+        String    type;
+        Character flag;
+        String    name;
+        String    id;
+        int       arity;
+        String[]  defaults;
+    }
+
+    public SourceVersion getSupportedSourceVersion ()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    public boolean process (Set<? extends TypeElement> annotations,
+                            RoundEnvironment round)
+    {
+        for (Element element :
+                 round.getElementsAnnotatedWith(GenerateParser.class))
+            if (element.getKind() == ElementKind.CLASS)
+                generate ((TypeElement)element);
+            else
+                error (element, "@GenerateParser requires a class");
+        return true;
+    }
+
+    private void error (Element element, String message)
+    {
+        processingEnv.getMessager().printMessage
+            (Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void generate (TypeElement type)
+    {
+        List<Field> fields = new ArrayList<Field>();
+        List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+        for (TypeElement t = type; t != null; t = superclass(t))
+            hierarchy.add (0, t);
+        Set<String> names = new HashSet<String>();
+        Set<Character> flags = new HashSet<Character>();
+        for (TypeElement t : hierarchy)
+            for (Element member : t.getEnclosedElements())
+                if (member.getKind() == ElementKind.FIELD &&
+                    member.getAnnotation(Opt.class) != null)
+                {
+                    Field field = field ((VariableElement)member);
+                    if (field == null)
+                        return;
+                    // The generated switch statements need unique
+                    // labels.
+                    if (field.name != null && !names.add(field.name))
+                    {
+                        error (member, "Duplicate option name: "
+                               + field.name);
+                        return;
+                    }
+                    if (field.flag != null && !flags.add(field.flag))
+                    {
+                        error (member, "Duplicate option flag: "
+                               + field.flag);
+                        return;
+                    }
+                    fields.add (field);
+                }
+
+        GenerateParser annotation = type.getAnnotation(GenerateParser.class);
+        Options options = new Options();
+        if (annotation.about().length > 0)
+            options.about (annotation.about());
+        if (annotation.usage().length > 0)
+            options.usage (annotation.usage());
+        try
+        {
+            for (Field field : fields)
+                options.option (field.flag, field.name, field.element
+                                .getAnnotation(Opt.class).description(),
+                                field.arity, field.defaults);
+        }
+        catch (InvalidOptionException e)
+        {
+            error (type, e.getMessage());
+            return;
+        }
+        String usage = options.compile().render_usage();
+
+        String pkg = processingEnv.getElementUtils()
+            .getPackageOf(type).getQualifiedName().toString();
+        String simple = type.getSimpleName().toString();
+        for (Element e = type.getEnclosingElement();
+             !(e instanceof PackageElement); e = e.getEnclosingElement())
+            simple = e.getSimpleName() + "_" + simple;
+        String parser = simple + "Parser";
+        String target = type.getQualifiedName().toString();
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile
+             (pkg.isEmpty() ? parser : pkg + "." + parser, type).openWriter())
+        {
+            writer.write (source (pkg, parser, target, usage, fields));
+        }
+        catch (IOException e)
+        {
+            error (type, "Can not write " + parser + ": " + e.getMessage());
+        }
+    }
+
+    private TypeElement superclass (TypeElement type)
+    {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED)
+            return null;
+        TypeElement element =
+            (TypeElement)((DeclaredType)superclass).asElement();
+        if (element.getQualifiedName().contentEquals("java.lang.Object"))
+            return null;
+        return element;
+    }
+
+    private Field field (VariableElement element)
+    {
+        String name = element.getSimpleName().toString();
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) ||
+            modifiers.contains(Modifier.FINAL) ||
+            modifiers.contains(Modifier.STATIC))
+        {
+            error (element, "Option fields must not be private, " +
+                   "final or static: " + name);
+            return null;
+        }
+        Opt opt = element.getAnnotation(Opt.class);
+        Field field = new Field();
+        field.element  = element;
+        field.field    = name;
+        field.type     = element.asType().toString();
+        field.kind     = kind (element.asType());
+        if (field.kind < 0)
+        {
+            error (element, "Unsupported type " + field.type +
+                   " for option: " + name);
+            return null;
+        }
+        boolean array = element.asType().getKind() == TypeKind.ARRAY;
+        int arity = opt.arity();
+        if (arity < 0)
+            if (field.kind == BOOLEAN)
+                arity = 0;
+            else if (array)
+            {
+                error (element, "Missing arity for array: " + name);
+                return null;
+            }
+            else
+                arity = 1;
+        if (arity == 0 && field.kind != BOOLEAN)
+        {
+            error (element, "Only boolean options can have no value: "
+                   + name);
+            return null;
+        }
+        if (arity > 1 && !array)
+        {
+            error (element, "Options with several values need an array: "
+                   + name);
+            return null;
+        }
+        field.arity    = arity;
+        field.flag     = opt.flag() == 0 ? null : opt.flag();
+        field.name     = opt.name().isEmpty()
+            ? (field.flag == null ? name : null)
+            : opt.name();
+        field.id       = field.name != null
+            ? field.name : field.flag.toString();
+        field.defaults = opt.defaults();
+        return field;
+    }
+
+    private int kind (TypeMirror type)
+    {
+        switch (type.getKind())
+        {
+        case BOOLEAN: return BOOLEAN;
+        case INT:     return INT;
+        case LONG:    return LONG;
+        case DOUBLE:  return DOUBLE;
+        case DECLARED:
+        {
+            Element element = ((DeclaredType)type).asElement();
+            if (element.getKind() == ElementKind.ENUM)
+                return ENUM;
+            String name = ((TypeElement)element).getQualifiedName()
+                .toString();
+            if (name.equals("java.lang.Boolean")) return BOOLEAN;
+            if (name.equals("java.lang.Integer")) return INT;
+            if (name.equals("java.lang.Long"))    return LONG;
+            if (name.equals("java.lang.Double"))  return DOUBLE;
+            if (name.equals("java.lang.String"))  return STRING;
+            return -1;
+        }
+        case ARRAY:
+        {
+            TypeMirror component = ((ArrayType)type).getComponentType();
+            switch (component.getKind())
+            {
+            case INT:    return INT_ARRAY;
+            case LONG:   return LONG_ARRAY;
+            case DOUBLE: return DOUBLE_ARRAY;
+            default:
+                if (component.toString().equals("java.lang.String"))
+                    return STRING_ARRAY;
+                return -1;
+            }
+        }
+        default:
+            return -1;
+        }
+    }
+
+    private static String literal (String s)
+    {
+        StringBuilder b = new StringBuilder ("\"");
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            switch (c)
+            {
+            case '"':  b.append ("\\\""); break;
+            case '\\': b.append ("\\\\"); break;
+            case '\n': b.append ("\\n");  break;
+            case '\r': b.append ("\\r");  break;
+            case '\t': b.append ("\\t");  break;
+            default:
+                if (c < 0x20 || c > 0x7e)
+                    b.append (String.format("\\u%04x", (int)c));
+                else
+                    b.append (c);
+            }
+        }
+        return b.append('"').toString();
+    }
+
+    private static String literal (char c)
+    {
+        if (c == '\'' || c == '\\')
+            return "'\\" + c + "'";
+        if (c < 0x20 || c > 0x7e)
+            return String.format("'\\u%04x'", (int)c);
+        return "'" + c + "'";
+    }
+
+    private static String conversion (Field field, String value, int index)
+    {
+        String id = literal (field.id);
+        switch (field.kind)
+        {
+        case BOOLEAN: case INT:
+        case LONG: case DOUBLE:
+        {
+            String[] names = { "boolean", "int", "long", "double" };
+            return "szi.options.ParserSupport.to_" + names[field.kind] +
+                " (" + id + ", " + index + ", " + value + ")";
+        }
+        case INT_ARRAY:
+            return "szi.options.ParserSupport.to_int (" + id + ", " +
+                index + ", " + value + ")";
+        case LONG_ARRAY:
+            return "szi.options.ParserSupport.to_long (" + id + ", " +
+                index + ", " + value + ")";
+        case DOUBLE_ARRAY:
+            return "szi.options.ParserSupport.to_double (" + id + ", " +
+                index + ", " + value + ")";
+        case ENUM:
+            return "szi.options.ParserSupport.to_enum (" + id + ", " +
+                index + ", " + value + ", " + field.type + ".class)";
+        default:
+            return value;
+        }
+    }
+
+    private static String source (String pkg, String parser, String target,
+                                  String usage, List<Field> fields)
+    {
+        List<String> names = new ArrayList<String>();
+        for (Field field : fields)
+            if (field.name != null)
+                names.add (field.name);
+        String[] sorted = names.toArray(new String[0]);
+        Arrays.sort (sorted);
+
+        StringBuilder s = new StringBuilder();
+        if (!pkg.isEmpty())
+            s.append("package ").append(pkg).append(";\n\n");
+        s.append("/**\n")
+         .append(" * Parser for {@link ").append(target).append("}")
+         .append(" generated by szi.options.ParserProcessor.\n")
+         .append(" */\n")
+         .append("@javax.annotation.processing.Generated")
+         .append("(\"szi.options.ParserProcessor\")\n")
+         .append("public final class ").append(parser).append("\n{\n")
+         .append("    private ").append(parser).append(" () {}\n\n")
+         .append("    /** The usage text. */\n")
+         .append("    public static final String USAGE =\n        ")
+         .append(literal(usage)).append(";\n\n")
+         .append("    private static final String[] NAMES = {");
+        for (int i = 0; i < sorted.length; i++)
+            s.append(i == 0 ? " " : ", ").append(literal(sorted[i]));
+        s.append(" };\n\n");
+        StringBuilder flags = new StringBuilder();
+        for (Field field : fields)
+            if (field.flag != null)
+                flags.append (field.flag.charValue());
+        s.append("    private static final String FLAGS = ")
+         .append(literal(flags.toString())).append(";\n\n");
+        for (int o = 0; o < fields.size(); o++)
+        {
+            Field field = fields.get(o);
+            if (field.defaults.length == 0)
+                continue;
+            s.append("    private static final String[] DEFAULTS_")
+             .append(o).append(" = {");
+            for (int i = 0; i < field.defaults.length; i++)
+                s.append(i == 0 ? " " : ", ")
+                 .append(literal(field.defaults[i]));
+            s.append(" };\n");
+        }
+        s.append("\n")
+         .append("    /** Print the usage text to the print stream. */\n")
+         .append("    public static void print_usage ")
+         .append("(java.io.PrintStream out)\n")
+         .append("    {\n")
+         .append("        out.print (USAGE);\n")
+         .append("    }\n\n");
+
+        s.append("    /**\n")
+         .append("     * Parse the arguments and assign the options to ")
+         .append("the fields\n")
+         .append("     * of the target.\n")
+         .append("     *\n")
+         .append("     * @return the non option arguments\n")
+         .append("     *\n")
+         .append("     * @throws szi.options.InvalidOptionException\n")
+         .append("     */\n")
+         .append("    public static String[] parse (").append(target)
+         .append(" target, String[] arguments)\n")
+         .append("    {\n")
+         .append("        java.util.List<String> positionals =\n")
+         .append("            new java.util.ArrayList<String>();\n")
+         .append("        boolean[] set = new boolean[")
+         .append(fields.size()).append("];\n")
+         .append("        String[][] values = new String[")
+         .append(fields.size()).append("][];\n")
+         .append("        for (int a = 0; a < arguments.length; a++)\n")
+         .append("        {\n")
+         .append("            String argument = arguments[a];\n")
+         .append("            if (argument.length() > 0 && ")
+         .append("argument.charAt(0) == '-')\n")
+         .append("                if (argument.length() > 1 && ")
+         .append("argument.charAt(1) == '-')\n")
+         .append("                    if (argument.length() == 2)\n")
+         .append("                        for (a++; a < arguments.length; ")
+         .append("a++)\n")
+         .append("                            positionals.add ")
+         .append("(arguments[a]);\n")
+         .append("                    else\n")
+         .append("                        switch (szi.options.ParserSupport")
+         .append(".long_name\n")
+         .append("                                (NAMES, argument, a))\n")
+         .append("                        {\n");
+        for (int o = 0; o < fields.size(); o++)
+        {
+            Field field = fields.get(o);
+            if (field.name == null)
+                continue;
+            s.append("                        case ")
+             .append(literal(field.name)).append(":\n")
+             .append("                            set[").append(o)
+             .append("] = true;\n");
+            if (field.arity > 0)
+                s.append("                            a = ")
+                 .append("szi.options.ParserSupport.long_values\n")
+                 .append("                                (arguments, a, ")
+                 .append(literal(field.id)).append(", ")
+                 .append(field.arity).append(", ")
+                 .append(field.defaults.length > 0).append(", values, ")
+                 .append(o).append(");\n");
+            s.append("                            break;\n");
+        }
+        s.append("                        }\n")
+         .append("                else\n")
+         .append("                    for (int i = 1; i < argument.length(); ")
+         .append("i++)\n")
+         .append("                        switch (argument.charAt(i))\n")
+         .append("                        {\n");
+        for (int o = 0; o < fields.size(); o++)
+        {
+            Field field = fields.get(o);
+            if (field.flag == null)
+                continue;
+            s.append("                        case ")
+             .append(literal(field.flag.charValue())).append(":\n")
+             .append("                            set[").append(o)
+             .append("] = true;\n");
+            if (field.arity > 0)
+                s.append("                            a = ")
+                 .append("szi.options.ParserSupport.short_values\n")
+                 .append("                                (arguments, a, i, ")
+                 .append(literal(field.id)).append(", ")
+                 .append(field.arity).append(", values, ")
+                 .append(o).append(");\n")
+                 .append("                            i = argument.length();\n");
+            s.append("                            break;\n");
+        }
+        s.append("                        default:\n")
+         .append("                            throw szi.options.ParserSupport")
+         .append(".undefined_short\n")
+         .append("                                ")
+         .append("(argument.charAt(i), FLAGS, a);\n")
+         .append("                        }\n")
+         .append("            else\n")
+         .append("                positionals.add (argument);\n")
+         .append("        }\n");
+
+        for (int o = 0; o < fields.size(); o++)
+        {
+            Field field = fields.get(o);
+            String assign = "target." + field.field + " = ";
+            if (field.arity == 0)
+            {
+                s.append("        if (set[").append(o).append("])\n")
+                 .append("            ").append(assign).append("true;\n");
+                continue;
+            }
+            // Options with default values are always assigned.
+            if (field.defaults.length > 0)
+                s.append("        {\n")
+                 .append("            String[] v = values[").append(o)
+                 .append("] != null ? values[").append(o)
+                 .append("] : DEFAULTS_").append(o).append(";\n");
+            else
+                s.append("        if (set[").append(o).append("])\n")
+                 .append("        {\n")
+                 .append("            String[] v = values[").append(o)
+                 .append("];\n");
+            if (field.kind >= STRING_ARRAY)
+            {
+                String component = field.type.substring
+                    (0, field.type.length() - 2);
+                s.append("            ").append(assign).append("new ")
+                 .append(component).append("[] {");
+                for (int i = 0; i < field.arity; i++)
+                    s.append(i == 0 ? "\n                " : ",\n                ")
+                     .append(conversion(field, "v[" + i + "]", i));
+                s.append(" };\n");
+            }
+            else
+                s.append("            ").append(assign)
+                 .append(conversion(field, "v[0]", 0)).append(";\n");
+            s.append("        }\n");
+        }
+        s.append("        return positionals.toArray(new String[0]);\n")
+         .append("    }\n")
+         .append("}\n");
+        return s.toString();
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helper methods for the parsers generated by the
+ * {@link ParserProcessor}.  They implement the parts of
+ * {@link Spec#parse(String[])}, which are not specialized for the
+ * options, so that the generated parsers behave exactly like the
+ * spec.  The methods are not meant to be called directly.
+ */
+public final class ParserSupport
+{
+    private ParserSupport () {}
+
+    /**
+     * @param flags all defined flags, used to suggest a flag differing
+     *              only in case
+     * @param a     the index of the argument
+     */
+    public static InvalidOptionException undefined_short (char flag,
+                                                          String flags,
+                                                          int a)
+    {
+        return new InvalidOptionException
+            (ParseError.undefined_short
+             (flag, a, Suggestions.flag (flags, flag)));
+    }
+
+    /**
+     * @param arity the number of values of the option
+     * @param a     the index of the option
+     */
+    public static InvalidOptionException missing_argument (String id,
+                                                           int arity, int a)
+    {
+        return new InvalidOptionException
+            (ParseError.missing_argument (id, arity, a));
+    }
+
+    /**
+     * Resolves the long option named by the argument after the two
+     * leading hyphens to the full name.  The argument can be an exact
+     * name or an unique prefix of a name.
+     *
+     * @param names     the sorted long names
+     * @param argument  the argument including the leading hyphens
+     * @param a         the index of the argument
+     *
+     * @return the full name
+     *
+     * @throws InvalidOptionException if the name is undefined or
+     *                                ambiguous
+     */
+    public static String long_name (String[] names, String argument,
+                                    int a)
+    {
+        String prefix = argument.substring(2);
+        int i = Arrays.binarySearch (names, prefix);
+        if (i >= 0)
+            return names[i];
+        i = -i - 1;
+        List<String> candidates = new ArrayList<String>();
+        for (; i < names.length && names[i].startsWith(prefix); i++)
+            candidates.add (names[i]);
+        if (candidates.size() == 1)
+            return candidates.get(0);
+        if (candidates.isEmpty())
+            throw new InvalidOptionException
+                (ParseError.undefined_long
+                 (argument, a, Suggestions.nearest (names, prefix)));
+        throw new InvalidOptionException
+            (ParseError.ambiguous_long (argument, candidates, a));
+    }
+
+    /**
+     * Reads the values of the long option at the index a.
+     *
+     * @return the index of the last argument read
+     *
+     * @throws InvalidOptionException
+     */
+    public static int long_values (String[] arguments, int a, String id,
+                                   int arity, boolean has_default,
+                                   String[][] values, int o)
+    {
+        if (arity == 0)
+            return a;
+        int at = a;
+        String next = a + 1 < arguments.length ? arguments[a + 1] : null;
+        if (next != null && next.length() > 0 && next.charAt(0) == '-')
+            if (has_default)
+                return a;
+            else
+                throw missing_argument (id, arity, at);
+        else
+            if (next == null && has_default)
+                return a;
+        String[] v = new String[arity];
+        for (int i = 0; i < arity; i++)
+            if (++a < arguments.length)
+                v[i] = arguments[a];
+            else
+                throw missing_argument (id, arity, at);
+        values[o] = v;
+        return a;
+    }
+
+    /**
+     * Reads the values of the short option at the position i of the
+     * argument at the index a.
+     *
+     * @return the index of the last argument read
+     *
+     * @throws InvalidOptionException
+     */
+    public static int short_values (String[] arguments, int a, int i,
+                                    String id, int arity,
+                                    String[][] values, int o)
+    {
+        String argument = arguments[a];
+        int at = a;
+        String[] v = new String[arity];
+        int n = 0;
+        if (++i < argument.length())
+            v[n++] = argument.substring(i);
+        for (; n < arity; n++)
+            if (++a < arguments.length)
+                v[n] = arguments[a];
+            else
+                throw missing_argument (id, arity, at);
+        values[o] = v;
+        return a;
+    }
+
+    public static long to_long (String id, int index, String value)
+    {
+        return Convert.to_long (id, index, value, 0);
+    }
+
+    public static int to_int (String id, int index, String value)
+    {
+        return Convert.to_int (id, index,
+                               Convert.to_long (id, index, value, 0));
+    }
+
+    public static double to_double (String id, int index, String value)
+    {
+        return Convert.to_double (id, index, value);
+    }
+
+    public static boolean to_boolean (String id, int index, String value)
+    {
+        return Convert.to_boolean (id, index, value);
+    }
+
+    public static <E extends Enum<E>> E to_enum (String id, int index,
+                                                 String value, Class<E> type)
+    {
+        return Convert.to_enum (id, index, value, type);
+    }
+}
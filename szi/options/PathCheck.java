@@ -0,0 +1,67 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The checks of option values naming files.
+ *
+ * @see Options#path(String, PathCheck...)
+ */
+public enum PathCheck
+{
+    /** The path exists. */
+    EXISTS ("an existing path"),
+    /** The path is a regular file. */
+    FILE ("a regular file"),
+    /** The path is a directory. */
+    DIRECTORY ("a directory"),
+    /** The path can be read. */
+    READABLE ("a readable path"),
+    /** The path can be written. */
+    WRITABLE ("a writable path");
+
+    /** The description for error messages. */
+    final String description;
+
+    PathCheck (String description)
+    {
+        this.description = description;
+    }
+
+    boolean test (Path path)
+    {
+        switch (this)
+        {
+        case EXISTS:
+            return Files.exists (path);
+        case FILE:
+            return Files.isRegularFile (path);
+        case DIRECTORY:
+            return Files.isDirectory (path);
+        case READABLE:
+            return Files.isReadable (path);
+        default:
+            return Files.isWritable (path);
+        }
+    }
+}
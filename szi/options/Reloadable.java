@@ -0,0 +1,335 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The options of a long running service read from a file, which is
+ * parsed again whenever it changes.  The file contains arguments like
+ * a command line, see {@link CommandLine}, separated by spaces or
+ * newlines.
+ * <p>
+ * Every parse yields an immutable snapshot, which replaces the
+ * previous one atomically.  Readers get the current snapshot with a
+ * single volatile read and without locking.  Several values read from
+ * one snapshot are always consistent, so a reader should keep the
+ * snapshot for the duration of a task instead of calling
+ * {@link #snapshot()} for every value.  A file, which can not be read
+ * or parsed, leaves the current snapshot in place.
+ * <p>
+ * The file is watched by a daemon thread started with
+ * {@link #start()}, which also calls the listeners registered for the
+ * options, which have changed.
+ */
+public final class Reloadable implements AutoCloseable
+{
+    private final Spec spec;
+    private final Path file;
+    private volatile Result snapshot;
+    private final List<Watch> listeners =
+        new CopyOnWriteArrayList<Watch>();
+    private volatile Consumer<InvalidOptionException> errors = null;
+    private WatchService watcher = null;
+
+    /** The milliseconds without changes before the file is read. */
+    private static final long QUIET = 50;
+
+    /** A listener for the changes of an option. */
+    private static final class Watch
+    {
+        final Option option;
+        final BiConsumer<Result,Result> consumer;
+
+        Watch (Option option, BiConsumer<Result,Result> consumer)
+        {
+            this.option   = option;
+            this.consumer = consumer;
+        }
+    }
+
+    /**
+     * Reads the options from the file.
+     *
+     * @param spec the spec of the options
+     * @param file the file with the arguments
+     *
+     * @throws InvalidOptionException if the file can not be read or
+     *                                contains invalid arguments
+     */
+    public Reloadable (Spec spec, Path file)
+    {
+        this.spec = spec;
+        this.file = file.toAbsolutePath();
+        snapshot  = read();
+    }
+
+    /**
+     * Returns the current snapshot of the options.
+     *
+     * @return the result of the last successful parse of the file
+     */
+    public Result snapshot ()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Registers a listener for changes of an option.  An option has
+     * changed, if it has been set or unset, or if its values or the
+     * number of its occurrences differ.  The listener receives the
+     * previous and the new snapshot after the new snapshot has been
+     * installed.  It is called on the thread reloading the file.
+     *
+     * @param option   the name or flag of an option
+     * @param listener the listener
+     *
+     * @return this object
+     *
+     * @throws InvalidOptionException if the option is undefined
+     */
+    public Reloadable on_change (String option,
+                                 BiConsumer<Result,Result> listener)
+    {
+        Option defined = spec.long_names.get (option);
+        if (defined == null && option.length() == 1)
+            defined = spec.short_option (option.charAt(0));
+        if (defined == null)
+            throw new InvalidOptionException
+                ("Undefined option: " + option);
+        listeners.add (new Watch (defined, listener));
+        return this;
+    }
+
+    /**
+     * Sets the consumer of the errors of reading and parsing the file
+     * in the background.  Without one the errors are ignored.  The
+     * exceptions of the change listeners are not passed to it, they go
+     * to the uncaught exception handler of the watching thread.
+     *
+     * @param consumer the consumer of the errors
+     *
+     * @return this object
+     */
+    public Reloadable on_error (Consumer<InvalidOptionException> consumer)
+    {
+        errors = consumer;
+        return this;
+    }
+
+    /**
+     * Parses the file again, installs the new snapshot and calls the
+     * listeners of the changed options.  Every listener is called,
+     * even if another one throws.  The first exception of a listener
+     * is thrown afterwards with the others suppressed.
+     *
+     * @throws InvalidOptionException if the file can not be read or
+     *                                contains invalid arguments; the
+     *                                snapshot is not changed then
+     */
+    public synchronized void reload ()
+    {
+        Result previous = snapshot;
+        Result current  = read();
+        snapshot = current;
+        call_listeners (previous, current);
+    }
+
+    private void call_listeners (Result previous, Result current)
+    {
+        RuntimeException failure = null;
+        for (Watch watch : listeners)
+            if (changed (watch.option, previous, current))
+                try
+                {
+                    watch.consumer.accept (previous, current);
+                }
+                catch (RuntimeException e)
+                {
+                    if (failure == null)
+                        failure = e;
+                    else
+                        failure.addSuppressed (e);
+                }
+        if (failure != null)
+            throw failure;
+    }
+
+    private Result read ()
+    {
+        String line;
+        try
+        {
+            line = new String (Files.readAllBytes(file),
+                               StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            throw new InvalidOptionException
+                ("Can not read options file: " + file + ": " + e);
+        }
+        return spec.parse (line);
+    }
+
+    private static boolean changed (Option option, Result previous,
+                                    Result current)
+    {
+        return previous.isset(option) != current.isset(option) ||
+            previous.count(option) != current.count(option) ||
+            !Arrays.equals (previous.all(option), current.all(option));
+    }
+
+    /**
+     * Starts watching the file on a daemon thread.  The directory of
+     * the file is watched, so that a file replaced by renaming another
+     * file, like editors do, is noticed as well.
+     *
+     * @return this object
+     *
+     * @throws IOException if the directory can not be watched
+     */
+    public synchronized Reloadable start ()
+        throws IOException
+    {
+        if (watcher != null)
+            return this;
+        final WatchService watcher =
+            file.getFileSystem().newWatchService();
+        try
+        {
+            file.getParent().register
+                (watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                 StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (IOException e)
+        {
+            watcher.close ();
+            throw e;
+        }
+        this.watcher = watcher;
+        Thread thread = new Thread(new Runnable() {
+                public void run () {
+                    watch (watcher);
+                }}, "reload " + file);
+        thread.setDaemon (true);
+        thread.start ();
+        return this;
+    }
+
+    private void watch (WatchService watcher)
+    {
+        Path name = file.getFileName();
+        try
+        {
+            WatchKey key = watcher.take();
+            while (true)
+            {
+                boolean changed = false;
+                // Wait until the writes to the file have stopped, so
+                // that a file being written is not parsed.
+                for (; key != null;
+                     key = watcher.poll(QUIET, TimeUnit.MILLISECONDS))
+                {
+                    for (WatchEvent<?> event : key.pollEvents())
+                        changed |= name.equals(event.context()) ||
+                            event.kind() == StandardWatchEventKinds.OVERFLOW;
+                    key.reset ();
+                }
+                if (changed)
+                    reload_quietly ();
+                key = watcher.take();
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            // Closed.
+        }
+    }
+
+    /**
+     * Reloads the file and passes the errors of reading and parsing it
+     * to the consumer.  Other exceptions, including all exceptions of
+     * the listeners, go to the uncaught exception handler, so that the
+     * watching goes on.
+     */
+    private synchronized void reload_quietly ()
+    {
+        Result previous = snapshot;
+        Result current;
+        try
+        {
+            current = read();
+        }
+        catch (InvalidOptionException e)
+        {
+            Consumer<InvalidOptionException> errors = this.errors;
+            if (errors != null)
+                errors.accept (e);
+            return;
+        }
+        catch (RuntimeException e)
+        {
+            uncaught (e);
+            return;
+        }
+        snapshot = current;
+        try
+        {
+            call_listeners (previous, current);
+        }
+        catch (RuntimeException e)
+        {
+            uncaught (e);
+        }
+    }
+
+    private static void uncaught (RuntimeException e)
+    {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException (thread, e);
+    }
+
+    /**
+     * Stops watching the file.  The last snapshot stays readable.
+     *
+     * @throws IOException if the watch service can not be closed
+     */
+    public synchronized void close ()
+        throws IOException
+    {
+        if (watcher != null)
+            watcher.close ();
+        watcher = null;
+    }
+}
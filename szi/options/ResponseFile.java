@@ -0,0 +1,148 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The arguments of a response file.  The file is mapped into memory
+ * and split into arguments lazily, one argument per call of
+ * {@link #next()}.  Arguments are separated by white space.  Single
+ * quotes preserve everything up to the next single quote.  Double
+ * quotes preserve everything up to the next double quote except a
+ * backslash, which escapes the following character.  Outside of
+ * quotes a backslash escapes the following character, too.  The file
+ * must be encoded in UTF-8.
+ */
+final class ResponseFile implements Iterator<String>
+{
+    private final String           path;
+    private final MappedByteBuffer buffer;
+    private byte[] token = new byte[64];
+    private String next  = null;
+
+    /**
+     * @throws InvalidOptionException if the file can not be read
+     */
+    ResponseFile (String path)
+    {
+        this.path = path;
+        Path file = Paths.get(path);
+        try (FileChannel channel = FileChannel.open
+             (file, StandardOpenOption.READ))
+        {
+            buffer = channel.map
+                (FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            throw new InvalidOptionException
+                ("Can not read response file: " + path + ": " + e);
+        }
+    }
+
+    private static boolean space (int b)
+    {
+        return b == ' ' || b == '\t' || b == '\n' ||
+            b == '\r' || b == '\f';
+    }
+
+    private void append (int length, byte b)
+    {
+        if (length == token.length)
+        {
+            byte[] bigger = new byte[token.length * 2];
+            System.arraycopy (token, 0, bigger, 0, length);
+            token = bigger;
+        }
+        token[length] = b;
+    }
+
+    private byte escaped ()
+    {
+        if (!buffer.hasRemaining())
+            throw new InvalidOptionException
+                ("Backslash at end of response file: " + path);
+        return buffer.get();
+    }
+
+    /**
+     * Reads the next argument or returns null at the end of the file.
+     */
+    private String read ()
+    {
+        while (buffer.hasRemaining() && space(buffer.get(buffer.position())))
+            buffer.get();
+        if (!buffer.hasRemaining())
+            return null;
+        int length = 0;
+        while (buffer.hasRemaining())
+        {
+            byte b = buffer.get();
+            if (space(b))
+                break;
+            else if (b == '\\')
+                append (length++, escaped());
+            else if (b == '\'' || b == '"')
+            {
+                byte quote = b;
+                for (;;)
+                {
+                    if (!buffer.hasRemaining())
+                        throw new InvalidOptionException
+                            ("Unterminated quote in response file: " + path);
+                    b = buffer.get();
+                    if (b == quote)
+                        break;
+                    if (b == '\\' && quote == '"')
+                        b = escaped();
+                    append (length++, b);
+                }
+            }
+            else
+                append (length++, b);
+        }
+        return new String (token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public boolean hasNext ()
+    {
+        if (next == null)
+            next = read();
+        return next != null;
+    }
+
+    public String next ()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        String result = next;
+        next = null;
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Expansion of response files.  An argument of the form
+ * <code>@file</code> is replaced by the arguments read from the file.
+ * Response files may refer to other response files.  The files are
+ * mapped into memory and split lazily, while the parser consumes the
+ * arguments, so that even huge argument lists are never held in
+ * memory as a whole.
+ *
+ * <pre>
+ * Result result = spec.parse (ResponseFiles.expand (args),
+ *                             file -&gt; process (file));
+ * </pre>
+ *
+ * @see Spec#parse(Iterator, java.util.function.Consumer)
+ */
+public final class ResponseFiles
+{
+    /** The maximum nesting of response files. */
+    public static final int MAX_DEPTH = 16;
+
+    private ResponseFiles () {}
+
+    /**
+     * Returns an iterator over the arguments with all response files
+     * expanded.
+     *
+     * @param arguments the command line arguments
+     *
+     * @return the expanded arguments
+     */
+    public static Iterator<String> expand (String... arguments)
+    {
+        return expand (Arrays.asList(arguments).iterator());
+    }
+
+    /**
+     * Returns an iterator over the arguments with all response files
+     * expanded.
+     *
+     * @param arguments the command line arguments
+     *
+     * @return the expanded arguments
+     *
+     * @see #expand(String...)
+     */
+    public static Iterator<String> expand (final Iterator<String> arguments)
+    {
+        return new Iterator<String>() {
+            private final Deque<Iterator<String>> sources =
+                new ArrayDeque<Iterator<String>>();
+            private String next = null;
+
+            {
+                sources.push (arguments);
+            }
+
+            /**
+             * @throws InvalidOptionException if a response file can
+             *                                not be read
+             */
+            public boolean hasNext ()
+            {
+                while (next == null && !sources.isEmpty())
+                {
+                    Iterator<String> source = sources.peek();
+                    if (!source.hasNext())
+                    {
+                        sources.pop();
+                        continue;
+                    }
+                    String argument = source.next();
+                    if (argument.length() > 1 && argument.charAt(0) == '@')
+                    {
+                        if (sources.size() > MAX_DEPTH)
+                            throw new InvalidOptionException
+                                ("Response files nested too deeply: "
+                                 + argument);
+                        sources.push (new ResponseFile
+                                      (argument.substring(1)));
+                    }
+                    else
+                        next = argument;
+                }
+                return next != null;
+            }
+
+            public String next ()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                String result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+}
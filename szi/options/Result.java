@@ -0,0 +1,1116 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * The result of parsing an argument list with a {@link Spec}.  The
+ * result holds only the per parse state: which options are set, their
+ * values and the remaining non option arguments.  The option
+ * definitions are shared with the spec.
+ * <p>
+ * The options set are kept as a bit set indexed by the ordinals of
+ * the options, so that the check after the parse and the groups of
+ * the spec only look at the words with set options.  The values are
+ * kept in a single int array of positions in the parsed argument
+ * array.  The array starts with two ints per value slot: the index of
+ * the argument plus one, or zero if the value is not set, and the
+ * offset of the value in the argument, which is not zero only for
+ * values attached to a short option like <code>-o1</code>.  The rest
+ * of the array holds the indexes of the non option arguments.
+ * Strings for values are created only when read.
+ * <p>
+ * Repeatable options record every occurrence as a range of arguments
+ * in a second int array: the index of the argument holding the first
+ * value, the offset of the value in it, the number of values and the
+ * index of the next occurrence of the option.  The values of an
+ * occurrence always follow each other in the arguments.  The array
+ * grows by doubling, so the occurrences cost a few ints each, however
+ * many there are.
+ * <p>
+ * If the arguments have been split from a {@link CommandLine}, the
+ * argument array holds the arguments created so far.  The others are
+ * created from the line, when they are read for the first time.
+ * <p>
+ * If the arguments have been read from an iterator, there is no
+ * argument array to point into.  In this case the values are copied
+ * into an array with one element per value slot and the non option
+ * arguments are passed to a consumer instead of being recorded.  The
+ * values of repeatable options are copied into a growing array.
+ */
+public final class Result extends Sink
+{
+    final Spec     spec;
+    final String[] argv;
+    /** The line of the arguments or null. */
+    private final CommandLine line;
+    final long[]   present;
+    final int[]    marks;
+    private final int positionals_base;
+    private int positionals = 0;
+    private final Consumer<String> consumer;
+    private final List<ParseError> errors;
+    /**
+     * Per repeatable option the first and the last occurrence plus
+     * one, the number of occurrences and the number of values.
+     */
+    private final int[] repeats;
+    /** The occurrences of the repeatable options. */
+    private int[] occurrences = null;
+    private int occurrence_count = 0;
+    /** The values of repeatable options read from an iterator. */
+    private String[] copies = null;
+    private int copy_count = 0;
+
+    private static final int FIRST = 0, LAST = 1, COUNT = 2, VALUES = 3;
+    private static final int ARGUMENT = 0, OFFSET = 1, SIZE = 2, NEXT = 3;
+    private String command = null;
+    private Result command_result = null;
+    private volatile Cache cache = null;
+    /** The values read from the sources by option ordinal. */
+    private volatile String[][] sourced = null;
+    /** The properties of the config file, read once per result. */
+    private volatile Map<String,String> properties = null;
+
+    private static final VarHandle SOURCED =
+        MethodHandles.arrayElementVarHandle(String[][].class);
+
+    Result (Spec spec, String[] argv)
+    {
+        this (spec, argv, false);
+    }
+
+    /**
+     * @param tolerant true to record errors instead of throwing
+     */
+    Result (Spec spec, String[] argv, boolean tolerant)
+    {
+        this (spec, argv, null,
+              tolerant ? new ArrayList<ParseError>() : null);
+    }
+
+    /**
+     * @param tolerant true to record errors instead of throwing
+     */
+    Result (Spec spec, CommandLine line, boolean tolerant)
+    {
+        this (spec, line.strings, line,
+              tolerant ? new ArrayList<ParseError>() : null);
+    }
+
+    /**
+     * @param errors the list recording the errors or null to throw
+     */
+    private Result (Spec spec, String[] argv, CommandLine line,
+                    List<ParseError> errors)
+    {
+        this.spec             = spec;
+        this.argv             = argv;
+        this.line             = line;
+        this.present          = new long[spec.present_words];
+        this.positionals_base = 2 * spec.value_slots;
+        this.marks            = new int[positionals_base + argv.length];
+        this.consumer         = null;
+        this.errors           = errors;
+        this.repeats          = repeats (spec);
+    }
+
+    Result (Spec spec, Consumer<String> consumer)
+    {
+        this.spec             = spec;
+        this.argv             = new String[spec.value_slots];
+        this.line             = null;
+        this.present          = new long[spec.present_words];
+        this.positionals_base = 2 * spec.value_slots;
+        this.marks            = new int[positionals_base];
+        this.consumer         = consumer;
+        this.errors           = null;
+        this.repeats          = repeats (spec);
+    }
+
+    private static int[] repeats (Spec spec)
+    {
+        return spec.repeat_slots == 0 ? null : new int[4 * spec.repeat_slots];
+    }
+
+    void option (Option option)
+    {
+        present[option.ordinal >>> 6] |= 1L << option.ordinal;
+        if (option.repeat >= 0)
+            occur (option);
+    }
+
+    /**
+     * Counts an occurrence of a repeatable option and appends the
+     * range of its values, unless the option is a counter.
+     */
+    private void occur (Option option)
+    {
+        int r = 4 * option.repeat;
+        repeats[r + COUNT]++;
+        if (option.required_values == 0 && !option.variadic)
+            return;
+        int[] occurrences = this.occurrences;
+        if (occurrences == null)
+            this.occurrences = occurrences = new int[4 * 8];
+        else if (4 * occurrence_count == occurrences.length)
+            this.occurrences = occurrences =
+                Arrays.copyOf (occurrences, 2 * occurrences.length);
+        int e = occurrence_count++;
+        if (repeats[r + LAST] == 0)
+            repeats[r + FIRST] = e + 1;
+        else
+            occurrences[4 * (repeats[r + LAST] - 1) + NEXT] = e + 1;
+        repeats[r + LAST] = e + 1;
+    }
+
+    /**
+     * Adds a value to the last occurrence of a repeatable option.
+     */
+    private void occurrence_value (Option option, CharSequence argument,
+                                   int a, int offset)
+    {
+        int r = 4 * option.repeat;
+        int e = 4 * (repeats[r + LAST] - 1);
+        if (consumer != null)
+        {
+            String[] copies = this.copies;
+            if (copies == null)
+                this.copies = copies = new String[8];
+            else if (copy_count == copies.length)
+                this.copies = copies =
+                    Arrays.copyOf (copies, 2 * copies.length);
+            a = copy_count;
+            copies[copy_count++] = text (argument, offset);
+            offset = 0;
+        }
+        if (occurrences[e + SIZE]++ == 0)
+        {
+            occurrences[e + ARGUMENT] = a;
+            occurrences[e + OFFSET]   = offset;
+        }
+        repeats[r + VALUES]++;
+    }
+
+    /**
+     * Copies the values of the occurrence into the array.
+     *
+     * @return the index after the last value copied
+     */
+    private int occurrence_values (int e, String[] values, int v)
+    {
+        e = 4 * e;
+        int a = occurrences[e + ARGUMENT];
+        int n = occurrences[e + SIZE];
+        for (int k = 0; k < n; k++)
+            if (consumer != null)
+                values[v++] = copies[a + k];
+            else if (k == 0 && occurrences[e + OFFSET] != 0)
+                values[v++] =
+                    argument(a).substring(occurrences[e + OFFSET]);
+            else
+                values[v++] = argument (a + k);
+        return v;
+    }
+
+    /**
+     * Calls the handler of the option, unless the handlers are
+     * deferred.
+     */
+    void end (Option option)
+    {
+        Handler[] handlers = spec.handlers;
+        if (handlers != null &&
+            handlers[option.ordinal] != null &&
+            !spec.defer_handlers)
+            handle (option, handlers[option.ordinal]);
+    }
+
+    /**
+     * Calls the handler of the option.  An option with an error is
+     * skipped.  Conversion errors of the handler are recorded, if
+     * errors are recorded.
+     *
+     * @throws InvalidOptionException
+     */
+    void handle (Option option, Handler handler)
+    {
+        if (failed (option))
+            return;
+        try
+        {
+            handler.handle (this, option);
+        }
+        catch (InvalidOptionException e)
+        {
+            if (errors == null || e.error() == null)
+                throw e;
+            errors.add (e.error());
+        }
+    }
+
+    void value (Option option, int index,
+                CharSequence argument, int a, int offset)
+    {
+        if (option.repeat >= 0)
+        {
+            occurrence_value (option, argument, a, offset);
+            if (option.variadic)
+                return;
+        }
+        if (consumer == null)
+            value (option, index, a, offset);
+        else
+        {
+            int slot = option.slot + index;
+            argv[slot] = text (argument, offset);
+            value (option, index, slot, 0);
+        }
+    }
+
+    private static String text (CharSequence argument, int offset)
+    {
+        return offset == 0
+            ? argument.toString()
+            : argument.subSequence(offset, argument.length()).toString();
+    }
+
+    void positional (CharSequence argument, int a)
+    {
+        if (consumer == null)
+            marks[positionals_base + positionals++] = a;
+        else
+            consumer.accept (argument.toString());
+    }
+
+    /**
+     * Returns the argument at the index and creates it from the line,
+     * if it has not been created yet.
+     */
+    private String argument (int a)
+    {
+        String argument = argv[a];
+        if (argument == null && line != null)
+            argument = line.get (a);
+        return argument;
+    }
+
+    /**
+     * Creates the result of the command, which shares the arguments
+     * and the errors with this result.
+     */
+    Sink command (Command command, int a)
+    {
+        Spec spec = command.spec();
+        this.command   = command.name;
+        command_result = consumer == null
+            ? new Result (spec, argv, line, errors)
+            : new Result (spec, consumer);
+        return command_result;
+    }
+
+    void error (ParseError error)
+    {
+        if (errors == null)
+            super.error (error);
+        else
+            errors.add (error);
+    }
+
+    /**
+     * Reports the errors found by the check of the values.
+     *
+     * @throws InvalidOptionException if errors are not recorded
+     */
+    void errors (List<ParseError> found)
+    {
+        if (errors == null)
+            throw new InvalidOptionException
+                (found.toArray(new ParseError[found.size()]));
+        errors.addAll (found);
+    }
+
+    /**
+     * Tells if an error has been recorded for the option.
+     */
+    boolean failed (Option option)
+    {
+        if (errors != null)
+            for (ParseError error : errors)
+                if (option.id().equals(error.option()))
+                    return true;
+        return false;
+    }
+
+    boolean isset (Option option)
+    {
+        return (present[option.ordinal >>> 6] & 1L << option.ordinal) != 0;
+    }
+
+    private void value (Option option, int index, int argument, int offset)
+    {
+        int slot = option.slot + index;
+        marks[2 * slot]     = argument + 1;
+        marks[2 * slot + 1] = offset;
+        // A repeated option replaces the value converted by a handler.
+        Cache cache = this.cache;
+        if (cache != null)
+            cache.clear (slot);
+    }
+
+    boolean has_value (Option option, int index)
+    {
+        return marks[2 * (option.slot + index)] != 0;
+    }
+
+    String value (Option option, int index)
+    {
+        check_index (option, index);
+        int m = 2 * (option.slot + index);
+        int argument = marks[m];
+        if (argument == 0)
+            return fallback (option, index);
+        int offset = marks[m + 1];
+        if (offset == 0)
+            return argument (argument - 1);
+        return argument(argument - 1).substring(offset);
+    }
+
+    /**
+     * Returns the properties of the config file.  The file is read
+     * once per result, so that all values of a result come from the
+     * same version of the file.
+     *
+     * @throws InvalidOptionException if the file can not be read
+     */
+    Map<String,String> properties ()
+    {
+        Map<String,String> properties = this.properties;
+        if (properties == null)
+            this.properties = properties = spec.sources.properties();
+        return properties;
+    }
+
+    /**
+     * Returns the values of the option from the sources or null if
+     * there are none.  The sources are read once per option.
+     */
+    private String[] sourced (Option option)
+    {
+        if (spec.sources == null ||
+            option.required_values == 0 && !option.variadic)
+            return null;
+        String[][] sourced = this.sourced;
+        if (sourced == null)
+            this.sourced = sourced = new String[spec.options.length][];
+        String[] values = (String[])SOURCED.getAcquire(sourced,
+                                                       option.ordinal);
+        if (values == null)
+        {
+            values = spec.sources.values (option, this);
+            if (spec.validators != null &&
+                spec.validators[option.ordinal] != null)
+                for (int v = 0; v < values.length; v++)
+                {
+                    ParseError error = spec.validate
+                        (option, v % Math.max(option.required_values, 1),
+                         values[v], -1, 0);
+                    if (error != null)
+                        throw new InvalidOptionException (error);
+                }
+            SOURCED.setRelease (sourced, option.ordinal, values);
+        }
+        return values == Sources.NONE ? null : values;
+    }
+
+    /**
+     * Returns the value at the index of an option not given in the
+     * arguments.  This is the value at the index in the last
+     * {@code required_values} values read from the sources, or the
+     * default value, if the sources do not define the option.
+     */
+    private String fallback (Option option, int index)
+    {
+        String[] values = sourced (option);
+        if (values == null)
+            return option.default_value(index);
+        return values[values.length - option.required_values + index];
+    }
+
+    /**
+     * Returns the values for the handler of the option: all values of
+     * a repeatable option, if the handlers are deferred, or the values
+     * of the last occurrence.
+     */
+    String[] values (Option option)
+    {
+        if (option.repeat >= 0 && spec.defer_handlers)
+            return all (option);
+        if (option.variadic)
+        {
+            int last = repeats[4 * option.repeat + LAST];
+            String[] values = new String[occurrences[4 * (last - 1) + SIZE]];
+            occurrence_values (last - 1, values, 0);
+            return values;
+        }
+        String[] values = new String[option.required_values];
+        for (int v = 0; v < values.length; v++)
+            values[v] = value (option, v);
+        return values;
+    }
+
+    /**
+     * Returns the values of all occurrences of the option.  An option,
+     * which is not repeatable, has a single occurrence.  The default
+     * values are returned, if the option is not set.
+     */
+    String[] all (Option option)
+    {
+        if (!isset(option))
+        {
+            String[] values = sourced (option);
+            return values != null
+                ? values.clone()
+                : option.default_values.clone();
+        }
+        if (option.repeat < 0)
+            return values (option);
+        int r = 4 * option.repeat;
+        String[] values = new String[repeats[r + VALUES]];
+        int v = 0;
+        for (int e = repeats[r + FIRST]; e != 0;
+             e = occurrences[4 * (e - 1) + NEXT])
+            v = occurrence_values (e - 1, values, v);
+        return values;
+    }
+
+    /**
+     * Returns the number of occurrences of the option.
+     */
+    int count (Option option)
+    {
+        if (option.repeat >= 0)
+            return repeats[4 * option.repeat + COUNT];
+        return isset(option) ? 1 : 0;
+    }
+
+    private static void check_index (Option option, int index)
+    {
+        if (index < 0 || index >= option.required_values)
+            throw new ArrayIndexOutOfBoundsException (index);
+    }
+
+    /**
+     * The converted values of the typed accessors.  Each value slot
+     * has a set of flags telling which conversions have been cached.
+     * The flags are written with release and read with acquire
+     * semantics, so that a result can be read by several threads.
+     */
+    private static final class Cache
+    {
+        static final byte LONG    = 1;
+        static final byte DOUBLE  = 2;
+        static final byte BOOLEAN = 4;
+        static final byte TRUE    = 8;
+
+        static final VarHandle FLAGS =
+            MethodHandles.arrayElementVarHandle(byte[].class);
+
+        final byte[]   flags;
+        final long[]   longs;
+        final double[] doubles;
+
+        Cache (int slots)
+        {
+            flags   = new byte[slots];
+            longs   = new long[slots];
+            doubles = new double[slots];
+        }
+
+        boolean has (int slot, byte flag)
+        {
+            return ((byte)FLAGS.getAcquire(flags, slot) & flag) != 0;
+        }
+
+        void add (int slot, byte flag)
+        {
+            FLAGS.getAndBitwiseOrRelease (flags, slot, flag);
+        }
+
+        void clear (int slot)
+        {
+            FLAGS.setRelease (flags, slot, (byte)0);
+        }
+    }
+
+    private Cache cache ()
+    {
+        Cache cache = this.cache;
+        if (cache == null)
+            this.cache = cache = new Cache (spec.value_slots);
+        return cache;
+    }
+
+    long to_long (Option option, int index)
+    {
+        check_index (option, index);
+        Cache cache = cache();
+        int slot = option.slot + index;
+        if (cache.has(slot, Cache.LONG))
+            return cache.longs[slot];
+        int m = 2 * slot;
+        long value = marks[m] == 0
+            ? Convert.to_long (option.id(), index,
+                               fallback(option, index), 0)
+            : Convert.to_long (option.id(), index,
+                               argument(marks[m] - 1), marks[m + 1]);
+        cache.longs[slot] = value;
+        cache.add (slot, Cache.LONG);
+        return value;
+    }
+
+    int to_int (Option option, int index)
+    {
+        return Convert.to_int (option.id(), index, to_long (option, index));
+    }
+
+    double to_double (Option option, int index)
+    {
+        check_index (option, index);
+        Cache cache = cache();
+        int slot = option.slot + index;
+        if (cache.has(slot, Cache.DOUBLE))
+            return cache.doubles[slot];
+        double value =
+            Convert.to_double (option.id(), index, value (option, index));
+        cache.doubles[slot] = value;
+        cache.add (slot, Cache.DOUBLE);
+        return value;
+    }
+
+    boolean to_boolean (Option option, int index)
+    {
+        check_index (option, index);
+        Cache cache = cache();
+        int slot = option.slot + index;
+        if (cache.has(slot, Cache.BOOLEAN))
+            return cache.has(slot, Cache.TRUE);
+        boolean value =
+            Convert.to_boolean (option.id(), index, value (option, index));
+        cache.add (slot, value
+                   ? (byte)(Cache.BOOLEAN | Cache.TRUE)
+                   : Cache.BOOLEAN);
+        return value;
+    }
+
+    <E extends Enum<E>> E to_enum (Option option, int index,
+                                   Class<E> type)
+    {
+        return Convert.to_enum (option.id(), index,
+                                value (option, index), type);
+    }
+
+    /**
+     * Returns the nth value of a short option.
+     *
+     * @param flag  the character of a short option
+     * @param index the intex to the value
+     *
+     * @return the value for the specified option
+     */
+    public String get (char flag, int index)
+    {
+        return value(spec.get_option(flag), index);
+    }
+
+    /**
+     * Returns the first value of an option.
+     *
+     * @see #get(char, int)
+     */
+    public String get (char flag)
+    {
+        return value(spec.get_option(flag), 0);
+    }
+
+    /**
+     * Returns the nth value of a long option.
+     *
+     * @param name  the name of a long option
+     * @param index the intex to the value
+     *
+     * @return the value for the specified option
+     */
+    public String get (String name, int index)
+    {
+        return value(spec.get_option(name), index);
+    }
+
+    /**
+     * Returns the first value of a long option.
+     *
+     * @see #get(String, int)
+     */
+    public String get (String name)
+    {
+        return value(spec.get_option(name), 0);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to an int.
+     * The conversion is done once and cached.  Default values are
+     * converted in the same way.
+     *
+     * @param flag  the character of a short option
+     * @param index the index to the value
+     *
+     * @return the converted value
+     *
+     * @throws InvalidOptionException if the value is missing or can
+     *                                not be converted
+     */
+    public int get_int (char flag, int index)
+    {
+        return to_int (spec.get_option(flag), index);
+    }
+
+    /**
+     * Returns the first value of a short option as an int.
+     *
+     * @see #get_int(char, int)
+     */
+    public int get_int (char flag)
+    {
+        return to_int (spec.get_option(flag), 0);
+    }
+
+    /**
+     * Returns the nth value of a long option as an int.
+     *
+     * @see #get_int(char, int)
+     */
+    public int get_int (String name, int index)
+    {
+        return to_int (spec.get_option(name), index);
+    }
+
+    /**
+     * Returns the first value of a long option as an int.
+     *
+     * @see #get_int(char, int)
+     */
+    public int get_int (String name)
+    {
+        return to_int (spec.get_option(name), 0);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to a long.
+     * The conversion is done once and cached.  Default values are
+     * converted in the same way.
+     *
+     * @param flag  the character of a short option
+     * @param index the index to the value
+     *
+     * @return the converted value
+     *
+     * @throws InvalidOptionException if the value is missing or can
+     *                                not be converted
+     */
+    public long get_long (char flag, int index)
+    {
+        return to_long (spec.get_option(flag), index);
+    }
+
+    /**
+     * Returns the first value of a short option as a long.
+     *
+     * @see #get_long(char, int)
+     */
+    public long get_long (char flag)
+    {
+        return to_long (spec.get_option(flag), 0);
+    }
+
+    /**
+     * Returns the nth value of a long option as a long.
+     *
+     * @see #get_long(char, int)
+     */
+    public long get_long (String name, int index)
+    {
+        return to_long (spec.get_option(name), index);
+    }
+
+    /**
+     * Returns the first value of a long option as a long.
+     *
+     * @see #get_long(char, int)
+     */
+    public long get_long (String name)
+    {
+        return to_long (spec.get_option(name), 0);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to a double.
+     * The conversion is done once and cached.  Default values are
+     * converted in the same way.
+     *
+     * @param flag  the character of a short option
+     * @param index the index to the value
+     *
+     * @return the converted value
+     *
+     * @throws InvalidOptionException if the value is missing or can
+     *                                not be converted
+     */
+    public double get_double (char flag, int index)
+    {
+        return to_double (spec.get_option(flag), index);
+    }
+
+    /**
+     * Returns the first value of a short option as a double.
+     *
+     * @see #get_double(char, int)
+     */
+    public double get_double (char flag)
+    {
+        return to_double (spec.get_option(flag), 0);
+    }
+
+    /**
+     * Returns the nth value of a long option as a double.
+     *
+     * @see #get_double(char, int)
+     */
+    public double get_double (String name, int index)
+    {
+        return to_double (spec.get_option(name), index);
+    }
+
+    /**
+     * Returns the first value of a long option as a double.
+     *
+     * @see #get_double(char, int)
+     */
+    public double get_double (String name)
+    {
+        return to_double (spec.get_option(name), 0);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to a boolean.
+     * The conversion is done once and cached.  Default values are
+     * converted in the same way.
+     *
+     * @param flag  the character of a short option
+     * @param index the index to the value
+     *
+     * @return the converted value
+     *
+     * @throws InvalidOptionException if the value is missing or can
+     *                                not be converted
+     */
+    public boolean get_boolean (char flag, int index)
+    {
+        return to_boolean (spec.get_option(flag), index);
+    }
+
+    /**
+     * Returns the first value of a short option as a boolean.
+     *
+     * @see #get_boolean(char, int)
+     */
+    public boolean get_boolean (char flag)
+    {
+        return to_boolean (spec.get_option(flag), 0);
+    }
+
+    /**
+     * Returns the nth value of a long option as a boolean.
+     *
+     * @see #get_boolean(char, int)
+     */
+    public boolean get_boolean (String name, int index)
+    {
+        return to_boolean (spec.get_option(name), index);
+    }
+
+    /**
+     * Returns the first value of a long option as a boolean.
+     *
+     * @see #get_boolean(char, int)
+     */
+    public boolean get_boolean (String name)
+    {
+        return to_boolean (spec.get_option(name), 0);
+    }
+
+    /**
+     * Returns the nth value of a short option converted to a constant
+     * of an enum type.  The value must be the name of the constant or
+     * its name in lower case with hyphens instead of underscores.
+     *
+     * @param flag  the character of a short option
+     * @param index the index to the value
+     * @param type  the enum type
+     *
+     * @return the enum constant
+     *
+     * @throws InvalidOptionException if the value is missing or does
+     *                                not name a constant
+     */
+    public <E extends Enum<E>> E get_enum (char flag, int index, Class<E> type)
+    {
+        return to_enum (spec.get_option(flag), index, type);
+    }
+
+    /**
+     * Returns the first value of a short option as an enum constant.
+     *
+     * @see #get_enum(char, int, Class)
+     */
+    public <E extends Enum<E>> E get_enum (char flag, Class<E> type)
+    {
+        return to_enum (spec.get_option(flag), 0, type);
+    }
+
+    /**
+     * Returns the nth value of a long option as an enum constant.
+     *
+     * @see #get_enum(char, int, Class)
+     */
+    public <E extends Enum<E>> E get_enum (String name, int index,
+                                           Class<E> type)
+    {
+        return to_enum (spec.get_option(name), index, type);
+    }
+
+    /**
+     * Returns the first value of a long option as an enum constant.
+     *
+     * @see #get_enum(char, int, Class)
+     */
+    public <E extends Enum<E>> E get_enum (String name, Class<E> type)
+    {
+        return to_enum (spec.get_option(name), 0, type);
+    }
+
+    /**
+     * Checks if a short option is set.
+     *
+     * @param flag the character of a short option
+     *
+     * @return true if the option is set
+     */
+    public boolean isset (char flag)
+    {
+        return isset(spec.get_option(flag));
+    }
+
+    /**
+     * Checks if a long option is set.
+     *
+     * @param name  the name of a long option
+     *
+     * @return true if the option is set
+     */
+    public boolean isset (String name)
+    {
+        return isset(spec.get_option(name));
+    }
+
+    /**
+     * Returns the number of occurrences of a short option.  Options,
+     * which are not repeatable, occur once if set.
+     *
+     * @param flag the character of a short option
+     *
+     * @return the number of occurrences
+     *
+     * @see Options#counter(Character, String, String)
+     */
+    public int count (char flag)
+    {
+        return count(spec.get_option(flag));
+    }
+
+    /**
+     * Returns the number of occurrences of a long option.
+     *
+     * @see #count(char)
+     */
+    public int count (String name)
+    {
+        return count(spec.get_option(name));
+    }
+
+    /**
+     * Returns the values of all occurrences of a short option in the
+     * order of the arguments.  The values of an option, which is not
+     * repeatable, are returned as they are, and the default values if
+     * the option is not set.
+     *
+     * @param flag the character of a short option
+     *
+     * @return a new array of the values
+     *
+     * @see Options#repeatable(Character, String, String, int)
+     * @see Options#variadic(Character, String, String)
+     */
+    public String[] get_all (char flag)
+    {
+        return all(spec.get_option(flag));
+    }
+
+    /**
+     * Returns the values of all occurrences of a long option.
+     *
+     * @see #get_all(char)
+     */
+    public String[] get_all (String name)
+    {
+        return all(spec.get_option(name));
+    }
+
+    /**
+     * Returns which option of an exclusive group is set.  The result
+     * is the index of the option in the definition of the group, so
+     * that it can be used in a switch statement.
+     *
+     * @param group the name of the group
+     *
+     * @return the index of the option set or -1 if none is set
+     *
+     * @throws InvalidOptionException if the group is undefined
+     *
+     * @see Options#exclusive(String, String...)
+     */
+    public int which_of (String group)
+    {
+        return spec.get_group(group).which(present);
+    }
+
+    /**
+     * Returns a copy of the non option arguments.
+     *
+     * @return the list of non option arguments
+     */
+    public String[] arguments ()
+    {
+        String[] arguments = new String[positionals];
+        for (int p = 0; p < positionals; p++)
+            arguments[p] = argument (marks[positionals_base + p]);
+        return arguments;
+    }
+
+    /**
+     * Returns the non option arguments as an unmodifiable view of the
+     * parsed argument array.  No argument is copied.
+     *
+     * @return the list of non option arguments
+     */
+    public List<String> positionals ()
+    {
+        return new Positionals();
+    }
+
+    private final class Positionals extends AbstractList<String>
+        implements RandomAccess
+    {
+        public String get (int index)
+        {
+            if (index < 0 || index >= positionals)
+                throw new IndexOutOfBoundsException
+                    ("Index: " + index + ", Size: " + positionals);
+            return argument (marks[positionals_base + index]);
+        }
+
+        public int size ()
+        {
+            return positionals;
+        }
+    }
+
+    /**
+     * Returns the name of the command found in the arguments or null
+     * if there is none.
+     *
+     * @see Options#command(String, String, java.util.function.Supplier)
+     */
+    public String command ()
+    {
+        return command;
+    }
+
+    /**
+     * Returns the result of the options and arguments following the
+     * command or null if there is no command.
+     */
+    public Result command_result ()
+    {
+        return command_result;
+    }
+
+    /**
+     * Tells if the arguments have been parsed without errors.
+     *
+     * @see Spec#try_parse(String[])
+     */
+    public boolean ok ()
+    {
+        return errors == null || errors.isEmpty();
+    }
+
+    /**
+     * Returns the errors recorded by {@link Spec#try_parse(String[])}
+     * in the order they have been found, including the errors of the
+     * command.  The list is empty for results of the other parse
+     * methods, which throw instead.
+     *
+     * @return an unmodifiable list of errors
+     */
+    public List<ParseError> errors ()
+    {
+        if (errors == null)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Returns the spec, which has produced this result.
+     */
+    public Spec spec ()
+    {
+        return spec;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Receives what the parser recognizes.  The argument index passed to
+ * the methods is the position of the argument in the parsed tokens.
+ */
+abstract class Sink
+{
+    /** An option has been found. */
+    void option (Option option) {}
+
+    /**
+     * A value of an option has been found.  The value starts at the
+     * offset in the argument.  The argument may be a view, which must
+     * not be kept.
+     */
+    void value (Option option, int index,
+                CharSequence argument, int a, int offset) {}
+
+    /** All values of an option have been read. */
+    void end (Option option) {}
+
+    /** A non option argument has been found. */
+    void positional (CharSequence argument, int a) {}
+
+    /** The option termination has been found. */
+    void terminator (int a) {}
+
+    /**
+     * A command has been found.  The arguments following the command
+     * are reported to the returned sink.
+     */
+    Sink command (Command command, int a)
+    {
+        return this;
+    }
+
+    /**
+     * An error has been found.  If the method returns, the parser
+     * continues with the next argument.
+     *
+     * @throws InvalidOptionException by default
+     */
+    void error (ParseError error)
+    {
+        throw new InvalidOptionException (error);
+    }
+}
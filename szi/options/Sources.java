@@ -0,0 +1,223 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The sources of values besides the arguments: an environment variable
+ * per option and a properties file with the long names or the flags of
+ * the options as keys.  The arguments come first, then the environment,
+ * then the file and then the default values.  The sources are read
+ * lazily, when a result is asked for the value of an option not given
+ * in the arguments.
+ * <p>
+ * A properties file is read once per result.  The properties are
+ * shared by all specs and parses, until the modification time or the
+ * size of the file changes.  A missing file has no values and is not
+ * cached, so that a file created later is read.
+ */
+final class Sources
+{
+    /** The values of an option without values in the sources. */
+    static final String[] NONE = new String[0];
+
+    /** The properties files read so far. */
+    private static final Map<Path,Loaded> files =
+        new ConcurrentHashMap<Path,Loaded>();
+
+    /** The properties of a file and the state of the file read. */
+    private static final class Loaded
+    {
+        final FileTime modified;
+        final long     size;
+        final Map<String,String> properties;
+
+        Loaded (BasicFileAttributes attributes,
+                Map<String,String> properties)
+        {
+            this.modified   = attributes.lastModifiedTime();
+            this.size       = attributes.size();
+            this.properties = properties;
+        }
+
+        boolean current (BasicFileAttributes attributes)
+        {
+            return modified.equals (attributes.lastModifiedTime()) &&
+                size == attributes.size();
+        }
+    }
+
+    /** The environment variables by option ordinal or null. */
+    final String[] variables;
+    /** The properties file or null. */
+    final Path     config;
+
+    Sources (String[] variables, Path config)
+    {
+        this.variables = variables;
+        this.config    = config == null
+            ? null
+            : config.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Returns the properties of the config file.
+     *
+     * @return the properties, empty if there is no config file
+     *
+     * @throws InvalidOptionException if the file can not be read
+     */
+    Map<String,String> properties ()
+    {
+        return config == null
+            ? Collections.<String,String>emptyMap()
+            : read (config);
+    }
+
+    /**
+     * Returns the values of the option from the first source defining
+     * it.  Several values are separated by white space.
+     *
+     * @param result the result asking, which keeps the properties of
+     *               the config file
+     *
+     * @return the values or {@link #NONE}
+     *
+     * @throws InvalidOptionException if the file can not be read or
+     *                                the number of values is wrong
+     */
+    String[] values (Option option, Result result)
+    {
+        String source = null;
+        String value  = null;
+        if (variables[option.ordinal] != null)
+        {
+            source = variables[option.ordinal];
+            value  = System.getenv (source);
+        }
+        if (value == null && config != null)
+        {
+            Map<String,String> properties = result.properties();
+            source = config.toString();
+            if (option.name != null)
+                value = properties.get (option.name);
+            if (value == null && option.flag != null)
+                value = properties.get (String.valueOf(option.flag));
+        }
+        if (value == null)
+            return NONE;
+        if (option.required_values == 1 && option.repeat < 0)
+            return new String[] { value };
+        String trimmed = value.trim();
+        String[] values = trimmed.isEmpty()
+            ? new String[0]
+            : trimmed.split("\\s+");
+        int required = Math.max (option.required_values, 1);
+        if (values.length == 0 && !option.variadic ||
+            values.length % required != 0 ||
+            option.repeat < 0 && values.length != required)
+            throw new InvalidOptionException
+                ("Wrong number of values for option " + option.id()
+                 + " in " + source + ": " + values.length);
+        return values;
+    }
+
+    /**
+     * Returns the properties of a file, which is read again, if it has
+     * changed since it has been read last.
+     *
+     * @throws InvalidOptionException if the file can not be read
+     */
+    static Map<String,String> read (Path file)
+    {
+        BasicFileAttributes attributes;
+        try
+        {
+            attributes = Files.readAttributes
+                (file, BasicFileAttributes.class);
+        }
+        catch (NoSuchFileException e)
+        {
+            files.remove (file);
+            return Collections.emptyMap();
+        }
+        catch (IOException e)
+        {
+            throw new InvalidOptionException
+                ("Can not read config file: " + file + ": " + e);
+        }
+        Loaded loaded = files.get (file);
+        if (loaded == null || !loaded.current(attributes))
+        {
+            // The attributes are taken before the file is read, so that
+            // a change while reading is seen by the next read.
+            Map<String,String> properties = load (file);
+            if (properties == null)
+            {
+                files.remove (file);
+                return Collections.emptyMap();
+            }
+            loaded = new Loaded (attributes, properties);
+            files.put (file, loaded);
+        }
+        return loaded.properties;
+    }
+
+    /**
+     * Reads the properties of a file.
+     *
+     * @return the properties or null if the file does not exist
+     */
+    private static Map<String,String> load (Path file)
+    {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader
+             (file, StandardCharsets.UTF_8))
+        {
+            properties.load (in);
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            throw new InvalidOptionException
+                ("Can not read config file: " + file + ": " + e);
+        }
+        Map<String,String> map = new HashMap<String,String>();
+        for (String key : properties.stringPropertyNames())
+            map.put (key, properties.getProperty(key));
+        return Collections.unmodifiableMap (map);
+    }
+}
@@ -0,0 +1,989 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An immutable compiled option specification.  A spec is created by
+ * {@link Options#compile()} and can be shared by any number of
+ * threads.  Each call of {@link #parse(String[])} returns a new
+ * {@link Result} holding the state of that parse, so the spec itself
+ * is never modified.
+ */
+public final class Spec
+{
+    final Option[]              options;
+    final Option[]              short_options;
+    final Map<Character,Option> wide_options;
+    final LongNames             long_names;
+    final int                   value_slots;
+    /** The number of repeatable options. */
+    final int                   repeat_slots;
+    final String[]              about_text;
+    final String[]              usage_text;
+    final Map<String,Command>   commands;
+    final Group[]               groups;
+    /** The handlers by ordinal or null if there are none. */
+    final Handler[]             handlers;
+    final boolean               defer_handlers;
+    /** The sources of values besides the arguments or null. */
+    final Sources               sources;
+    /** The checks of the values by ordinal or null if there are none. */
+    final Validator[][]         validators;
+
+    /** The number of words of the presence bits of a result. */
+    final int present_words;
+    /** The bits of the options requiring values without defaults. */
+    private final long[] needs_values;
+    /** The bits of the options with a handler. */
+    private final long[] has_handler;
+
+    /** The indexes of names for suggestions, built on demand. */
+    private volatile Suggestions suggestions = null;
+    private volatile Suggestions command_suggestions = null;
+
+    /** The counters or null if not enabled. */
+    private volatile Metrics metrics = null;
+
+    /** The rendered usage text and the wrapped texts by width. */
+    private volatile String usage = null;
+    /** The usage text in a spec cache file, copied when needed. */
+    private final CharSequence cached_usage;
+    private final Map<Integer,String> wrapped_usage =
+        new ConcurrentHashMap<Integer,String>();
+
+    /**
+     * Short options with an ASCII flag are looked up directly in the
+     * table {@link #short_options} indexed by the flag character.  All
+     * other flags are looked up in the map {@link #wide_options}.
+     */
+    static final int SHORT_TABLE_SIZE = 128;
+
+    Spec (List<Option>  options_list,
+          List<Command> commands,
+          List<Group>   groups,
+          List<Handler> handlers,
+          boolean       defer_handlers,
+          Sources       sources,
+          List<Validator[]> validators,
+          String[]      about_text,
+          String[]      usage_text)
+    {
+        this (options_list.toArray(new Option[0]), null, commands,
+              groups, handlers, defer_handlers, sources, validators,
+              about_text, usage_text, null);
+    }
+
+    /**
+     * Creates a spec from the parts read by {@link SpecCache}.
+     *
+     * @param long_names the index of the long names or null to build it
+     * @param usage      the rendered usage text or null to render it on
+     *                   demand
+     */
+    Spec (Option[]      options,
+          LongNames     long_names,
+          List<Command> commands,
+          List<Group>   groups,
+          List<Handler> handlers,
+          boolean       defer_handlers,
+          Sources       sources,
+          List<Validator[]> validators,
+          String[]      about_text,
+          String[]      usage_text,
+          CharSequence  usage)
+    {
+        this.options = options;
+        Option[] short_options = new Option[SHORT_TABLE_SIZE];
+        Map<Character,Option> wide_options = new HashMap<Character,Option>();
+        for (Option option : options)
+            if (option.flag != null)
+                if (option.flag < SHORT_TABLE_SIZE)
+                    short_options[option.flag] = option;
+                else
+                    wide_options.put (option.flag, option);
+        this.short_options = short_options;
+        this.wide_options  = Collections.unmodifiableMap(wide_options);
+        this.long_names    = long_names != null
+            ? long_names
+            : new LongNames (options);
+        int slots = 0;
+        int repeats = 0;
+        long[] needs_values = new long[(options.length + 63) >>> 6];
+        long[] has_handler  = new long[needs_values.length];
+        boolean handled = false;
+        boolean validated = false;
+        for (Option option : options)
+        {
+            slots += option.required_values;
+            repeats = Math.max (repeats, option.repeat + 1);
+            if (option.required_values > 0 && !option.has_default())
+                needs_values[option.ordinal >>> 6] |= 1L << option.ordinal;
+            if (handlers.get(option.ordinal) != null)
+            {
+                has_handler[option.ordinal >>> 6] |= 1L << option.ordinal;
+                handled = true;
+            }
+            validated |= validators.get(option.ordinal) != null;
+        }
+        this.value_slots    = slots;
+        this.repeat_slots   = repeats;
+        this.present_words  = needs_values.length;
+        this.needs_values   = needs_values;
+        this.has_handler    = has_handler;
+        this.handlers       = handled
+            ? handlers.toArray(new Handler[options.length])
+            : null;
+        this.defer_handlers = defer_handlers;
+        this.sources        = sources;
+        this.validators     = validated
+            ? validators.toArray(new Validator[options.length][])
+            : null;
+        this.about_text  = about_text == null ? null : about_text.clone();
+        this.usage_text  = usage_text == null ? null : usage_text.clone();
+        Map<String,Command> by_name = new LinkedHashMap<String,Command>();
+        for (Command command : commands)
+            by_name.put (command.name, command);
+        this.commands     = Collections.unmodifiableMap(by_name);
+        this.groups       = groups.toArray(new Group[groups.size()]);
+        this.cached_usage = usage;
+    }
+
+    /**
+     * @throws InvalidOptionException
+     */
+    Option get_option (char flag)
+    {
+        Option option = short_option (flag);
+        if (option == null)
+            undefined_short (flag, -1, new Sink() {});
+        return option;
+    }
+
+    /**
+     * @throws InvalidOptionException
+     */
+    Group get_group (String name)
+    {
+        for (Group group : groups)
+            if (name.equals(group.name))
+                return group;
+        throw new InvalidOptionException ("Undefined group: " + name);
+    }
+
+    /**
+     * Returns the option for the flag or null if it is undefined.
+     */
+    Option short_option (char flag)
+    {
+        return flag < SHORT_TABLE_SIZE
+            ? short_options[flag]
+            : wide_options.get(flag);
+    }
+
+    /**
+     * @throws InvalidOptionException
+     */
+    Option get_option (String name)
+    {
+        Option option = long_names.get(name);
+        if (option == null)
+            throw new InvalidOptionException
+                ("Undefined long option: --" + name);
+        return option;
+    }
+
+    /**
+     * Finds the long option named by the argument after the two
+     * leading hyphens.  Unique abbreviations of long names are
+     * accepted.
+     *
+     * @throws InvalidOptionException
+     */
+    Option get_long_option (String argument)
+    {
+        Option option = long_names.find (argument, 2, argument.length());
+        if (option == null)
+            undefined_long (argument, -1, new Sink() {});
+        return option;
+    }
+
+    /**
+     * Reports an undefined or ambiguous long option named by the
+     * argument after the two leading hyphens.
+     */
+    private void undefined_long (CharSequence argument, int a, Sink sink)
+    {
+        List<String> candidates =
+            long_names.candidates (argument, 2, argument.length());
+        if (candidates.size() > 1)
+            sink.error (ParseError.ambiguous_long
+                        (argument.toString(), candidates, a));
+        else
+            sink.error (ParseError.undefined_long
+                        (argument.toString(), a, suggestions()));
+    }
+
+    /**
+     * Reports an undefined short option.  A flag differing only in
+     * case is suggested.
+     */
+    private void undefined_short (char flag, int a, Sink sink)
+    {
+        char other = Character.isUpperCase(flag)
+            ? Character.toLowerCase(flag)
+            : Character.toUpperCase(flag);
+        sink.error (ParseError.undefined_short
+                    (flag, a, other != flag && short_option(other) != null
+                     ? (Character)other : null));
+    }
+
+    /**
+     * Returns the index of the long names for suggestions.  The index
+     * is built when the first suggestion is needed, so that valid
+     * arguments do not pay for it.
+     */
+    Suggestions suggestions ()
+    {
+        Suggestions index = suggestions;
+        if (index == null)
+        {
+            List<String> names = new ArrayList<String>();
+            for (Option option : options)
+                if (option.name != null)
+                    names.add (option.name);
+            suggestions = index = new Suggestions
+                (names.toArray(new String[names.size()]));
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the command names for suggestions.
+     */
+    Suggestions command_suggestions ()
+    {
+        Suggestions index = command_suggestions;
+        if (index == null)
+            command_suggestions = index = new Suggestions
+                (commands.keySet().toArray(new String[commands.size()]));
+        return index;
+    }
+
+    /**
+     * Returns a result without any option set.  The accessors of the
+     * result return the default values.
+     *
+     * @return an empty result
+     */
+    public Result empty ()
+    {
+        return new Result (this, new String[0]);
+    }
+
+    /**
+     * Parse the arguments list.  The syntax is the same as for
+     * {@link Options#parse(String[])} but the state of the parse is
+     * returned in a new result object instead of being stored in the
+     * spec.
+     * <p>
+     * The result does not copy any argument.  It records the positions
+     * of option values and non option arguments as offsets into the
+     * argument array and creates strings only, when they are read.
+     * The argument array must therefore not be modified as long as the
+     * result is in use.
+     *
+     * @param arguments the list of command line arguments
+     *
+     * @return the parse result
+     *
+     * @throws InvalidOptionException
+     */
+    public Result parse (String[] arguments)
+    {
+        Result result = new Result (this, arguments);
+        run (new Tokens.Array (arguments), result, result);
+        return result;
+    }
+
+    /**
+     * Parse the arguments list without throwing an exception for
+     * invalid arguments.  Instead, every error is recorded in the
+     * result and the parser continues with the next argument.  This is
+     * much cheaper than catching exceptions, if invalid arguments are
+     * common, for example when validating command lines from users.
+     * <p>
+     * An undefined option is skipped.  An option with missing values
+     * is set, but the missing values are not.
+     *
+     * @param arguments the list of command line arguments
+     *
+     * @return the parse result with the errors found
+     *
+     * @see Result#errors()
+     */
+    public Result try_parse (String[] arguments)
+    {
+        Result result = new Result (this, arguments, true);
+        run (new Tokens.Array (arguments), result, result);
+        return result;
+    }
+
+    /**
+     * Parse a command line.  The line is split into arguments like a
+     * POSIX shell does, see {@link CommandLine}.  Options are
+     * recognized in the line without copying them.  Strings are
+     * created only for values and non option arguments, when they are
+     * read from the result.
+     *
+     * @param line the command line, for example a string or a char
+     *             buffer, which must not be modified as long as the
+     *             result is in use
+     *
+     * @return the parse result
+     *
+     * @throws InvalidOptionException
+     */
+    public Result parse (CharSequence line)
+    {
+        CommandLine arguments = CommandLine.split (line);
+        Result result = new Result (this, arguments, false);
+        run (arguments.tokens(), result, result);
+        return result;
+    }
+
+    /**
+     * Parse a command line without throwing an exception for invalid
+     * arguments.
+     *
+     * @param line the command line
+     *
+     * @return the parse result with the errors found
+     *
+     * @throws InvalidOptionException if a quote is not closed, because
+     *                                the line can not be split then
+     *
+     * @see #parse(CharSequence)
+     * @see #try_parse(String[])
+     */
+    public Result try_parse (CharSequence line)
+    {
+        CommandLine arguments = CommandLine.split (line);
+        Result result = new Result (this, arguments, true);
+        run (arguments.tokens(), result, result);
+        return result;
+    }
+
+    /**
+     * Parse the arguments read from an iterator.  The arguments are
+     * consumed one by one, while the parser looks at most one argument
+     * ahead.  Option values are copied into the result.  The non
+     * option arguments are not collected but passed to the consumer as
+     * soon as they are recognized.
+     *
+     * @param arguments   the command line arguments
+     * @param positionals the consumer for the non option arguments
+     *
+     * @return the parse result
+     *
+     * @throws InvalidOptionException
+     *
+     * @see ResponseFiles#expand(String...)
+     */
+    public Result parse (Iterator<String> arguments,
+                         Consumer<String> positionals)
+    {
+        Result result = new Result (this, positionals);
+        run (new Tokens.Stream (arguments), result, result);
+        return result;
+    }
+
+    /**
+     * Parse the arguments list and pass every option and non option
+     * argument to the listener as soon as it is recognized.  Nothing
+     * is collected, so the listener can start working on the first
+     * arguments before the rest has been parsed.
+     *
+     * @param arguments the list of command line arguments
+     * @param listener  the listener receiving the options and arguments
+     *
+     * @throws InvalidOptionException
+     */
+    public void parse (String[] arguments, Listener listener)
+    {
+        run (new Tokens.Array (arguments), new Dispatch (listener), null);
+    }
+
+    /**
+     * Parse the arguments read from an iterator and pass every option
+     * and non option argument to the listener as soon as it is
+     * recognized.
+     *
+     * @param arguments the command line arguments
+     * @param listener  the listener receiving the options and arguments
+     *
+     * @throws InvalidOptionException
+     *
+     * @see #parse(String[], Listener)
+     */
+    public void parse (Iterator<String> arguments, Listener listener)
+    {
+        run (new Tokens.Stream (arguments), new Dispatch (listener), null);
+    }
+
+    /**
+     * Parse many argument lists in parallel on the common fork/join
+     * pool.
+     *
+     * @param lines the argument lists
+     *
+     * @return the results and errors of all argument lists
+     *
+     * @see #parse_batch(List, ForkJoinPool)
+     */
+    public Batch parse_batch (List<String[]> lines)
+    {
+        return Batch.parse (this, lines, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse many argument lists in parallel.  The spec is shared by
+     * all tasks.  Errors do not stop the batch but are collected
+     * together with the index of the failing argument list.
+     *
+     * @param lines the argument lists
+     * @param pool  the pool running the tasks
+     *
+     * @return the results and errors of all argument lists
+     */
+    public Batch parse_batch (List<String[]> lines, ForkJoinPool pool)
+    {
+        return Batch.parse (this, lines, pool);
+    }
+
+    /**
+     * Parse a stream of argument lists in parallel.  The stream is
+     * collected into a list first.
+     *
+     * @param lines the argument lists
+     *
+     * @return the results and errors of all argument lists
+     *
+     * @see #parse_batch(List, ForkJoinPool)
+     */
+    public Batch parse_batch (Stream<String[]> lines)
+    {
+        return parse_batch (lines.collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the counters of this spec and starts counting, if not
+     * done yet.  Specs without enabled metrics do not count anything.
+     *
+     * @return the metrics
+     */
+    public OptionsMetrics enable_metrics ()
+    {
+        synchronized (this)
+        {
+            if (metrics == null)
+                metrics = new Metrics (this);
+            return metrics;
+        }
+    }
+
+    /**
+     * Stops counting.  The counters read so far are kept by the
+     * metrics returned by {@link #enable_metrics()}, but a new call of
+     * it starts from zero.
+     */
+    public void disable_metrics ()
+    {
+        metrics = null;
+    }
+
+    /**
+     * Returns the metrics or null if they are not enabled.
+     */
+    public OptionsMetrics metrics ()
+    {
+        return metrics;
+    }
+
+    /**
+     * Parse the tokens and check the result, if there is one.  The
+     * parse is counted in the metrics and recorded as flight recorder
+     * event, if either is enabled.  Otherwise nothing is measured.
+     *
+     * @throws InvalidOptionException
+     */
+    private void run (Tokens tokens, Sink sink, Result result)
+    {
+        Metrics metrics = this.metrics;
+        ParseEvent event = new ParseEvent();
+        if (metrics == null && !event.isEnabled())
+        {
+            parse (tokens, sink);
+            if (result != null)
+                finish (result);
+            return;
+        }
+        long start = System.nanoTime();
+        event.begin();
+        String error = null;
+        try
+        {
+            parse (tokens, sink);
+            if (result != null)
+            {
+                finish (result);
+                if (!result.ok())
+                    error = result.errors().get(0).kind().name();
+            }
+        }
+        catch (InvalidOptionException e)
+        {
+            error = e.error() != null
+                ? e.error().kind().name()
+                : e.getMessage();
+            throw e;
+        }
+        finally
+        {
+            if (metrics != null)
+                metrics.parsed (System.nanoTime() - start, error != null);
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.tokens  = tokens.count();
+                event.options = options.length;
+                event.error   = error;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Parse the tokens and report everything found to the sink.
+     * Errors are reported to the sink, too.  If the sink does not
+     * throw, the parser continues after the error.
+     *
+     * @throws InvalidOptionException
+     */
+    void parse (Tokens tokens, Sink sink)
+    {
+        parse (tokens, 0, sink);
+    }
+
+    /**
+     * Parse the tokens starting at the index.
+     *
+     * @throws InvalidOptionException
+     */
+    void parse (Tokens tokens, int from, Sink sink)
+    {
+        Metrics metrics = this.metrics;
+        CharSequence argument;
+        for (int a = from; (argument = tokens.get(a)) != null; a++)
+        {
+            if (argument.length() > 0 && argument.charAt(0) == '-')
+                // This is an option.
+                if (argument.length() > 1 && argument.charAt(1) == '-')
+                    if (argument.length() == 2)
+                    {
+                        // This is the option termination.
+                        sink.terminator (a);
+                        for (a++; (argument = tokens.get(a)) != null; a++)
+                            sink.positional (argument, a);
+                        break;
+                    }
+                    else
+                    {
+                        // This is a long option.
+                        Option option = long_names.find
+                            (argument, 2, argument.length());
+                        if (option == null)
+                        {
+                            undefined_long (argument, a, sink);
+                            continue;
+                        }
+                        int at = a;
+                        sink.option (option);
+                        if (metrics != null)
+                            metrics.hit (option);
+                        if (option.variadic)
+                        {
+                            a = variadic (tokens, a, option, 0, sink);
+                            sink.end (option);
+                            continue;
+                        }
+                        // Peek next argument.
+                        if (option.required_values > 0)
+                        {
+                            CharSequence next = tokens.get(a + 1); // look ahead
+                            if (next != null &&
+                                next.length() > 0 &&
+                                next.charAt(0) == '-')
+                                // The next argument is an option and no
+                                // argument.
+                                if (option.has_default())
+                                {
+                                    // This is ok if we have default values.
+                                    sink.end (option);
+                                    continue;
+                                }
+                                else
+                                {
+                                    sink.error (missing (option, a));
+                                    sink.end (option);
+                                    continue;
+                                }
+                            else
+                                if (next == null &&
+                                    option.has_default())
+                                {
+                                    // There are no further arguments
+                                    // but we have a default value.
+                                    sink.end (option);
+                                    continue;
+                                }
+                        }
+                        // The next arguments must be values.
+                        for (int v = 0; v < option.required_values; v++)
+                            if ((argument = tokens.get(++a)) != null)
+                                value (sink, option, v, argument, a, 0);
+                            else
+                            {
+                                // The arguments end too early.
+                                sink.error (missing (option, at));
+                                sink.end (option);
+                                return;
+                            }
+                        sink.end (option);
+                    }
+                else
+                {
+                    // This is a short option.
+                    for (int i = 1; i < argument.length(); i++)
+                    {
+                        Option option = short_option (argument.charAt(i));
+                        if (option == null)
+                        {
+                            undefined_short (argument.charAt(i), a, sink);
+                            continue;
+                        }
+                        int at = a;
+                        sink.option (option);
+                        if (metrics != null)
+                            metrics.hit (option);
+                        if (option.variadic)
+                        {
+                            int v = 0;
+                            if (++i < argument.length())
+                                value (sink, option, v++, argument, a, i);
+                            a = variadic (tokens, a, option, v, sink);
+                            sink.end (option);
+                            break;
+                        }
+                        if (option.required_values > 0)
+                        {
+                            int v = 0;
+                            if (++i < argument.length())
+                                // If pressent the remaining part of
+                                // the argument is the value.
+                                value (sink, option, v++, argument, a, i);
+
+                            for (; v < option.required_values; v++)
+                            {
+                                // Otherwise the next argument is the
+                                // value.
+                                CharSequence value = tokens.get(++a);
+                                if (value != null)
+                                    value (sink, option, v, value, a, 0);
+                                else
+                                {
+                                    sink.error (missing (option, at));
+                                    sink.end (option);
+                                    return;
+                                }
+                            }
+                            sink.end (option);
+                            break;
+                        }
+                        sink.end (option);
+                    }
+                }
+            else if (commands.isEmpty())
+                // This is an argument and no option.
+                sink.positional (argument, a);
+            else
+            {
+                // This is the command.  The remaining arguments are
+                // parsed with the options of the command.
+                Command command = commands.get(argument.toString());
+                if (command == null)
+                {
+                    sink.error (ParseError.undefined_command
+                                (argument.toString(), a,
+                                 command_suggestions()));
+                    return;
+                }
+                command.spec().parse (tokens, a + 1,
+                                      sink.command (command, a));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the values of a variadic option following the argument at
+     * the index up to the next option or the end.
+     *
+     * @param v the index of the first value
+     *
+     * @return the index of the last value read
+     */
+    private int variadic (Tokens tokens, int a, Option option,
+                          int v, Sink sink)
+    {
+        CharSequence next;
+        while ((next = tokens.get(a + 1)) != null &&
+               !(next.length() > 0 && next.charAt(0) == '-'))
+            value (sink, option, v++, next, ++a, 0);
+        return a;
+    }
+
+    /**
+     * Passes a value to the sink after checking it.  An invalid value
+     * is reported to the sink before it is passed on.
+     */
+    private void value (Sink sink, Option option, int v,
+                        CharSequence argument, int a, int offset)
+    {
+        if (validators != null && validators[option.ordinal] != null)
+        {
+            ParseError error = validate (option, v, argument, a, offset);
+            if (error != null)
+                sink.error (error);
+        }
+        sink.value (option, v, argument, a, offset);
+    }
+
+    /**
+     * Checks a value of an option with its validators.
+     *
+     * @param a the index of the argument or -1
+     *
+     * @return the error for the first failed check or null
+     */
+    ParseError validate (Option option, int v, CharSequence argument,
+                         int a, int offset)
+    {
+        for (Validator validator : validators[option.ordinal])
+        {
+            String detail = validator.check (argument, offset);
+            if (detail != null)
+                return ParseError.invalid_value
+                    (option.id(), a, v,
+                     detail + ": " + Validator.text(argument, offset));
+        }
+        return null;
+    }
+
+    private static ParseError missing (Option option, int a)
+    {
+        return ParseError.missing_argument
+            (option.id(), option.required_values, a);
+    }
+
+    /**
+     * Checks the result and calls the deferred handlers, if the result
+     * is valid.
+     *
+     * @throws InvalidOptionException
+     */
+    private void finish (Result result)
+    {
+        check (result);
+        if (result.ok())
+            handle (result);
+    }
+
+    /**
+     * Calls the deferred handlers of the options set in the order of
+     * the ordinals and continues with the result of the command.
+     *
+     * @throws InvalidOptionException
+     */
+    private void handle (Result result)
+    {
+        if (handlers != null && defer_handlers)
+        {
+            long[] present = result.present;
+            for (int w = 0; w < present.length; w++)
+                for (long bits = present[w] & has_handler[w];
+                     bits != 0;
+                     bits &= bits - 1)
+                {
+                    int o = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    result.handle (options[o], handlers[o]);
+                }
+        }
+        Result command = result.command_result();
+        if (command != null)
+            command.spec.handle (command);
+    }
+
+    /**
+     * Check if all required values are defined and all groups are
+     * satisfied.  Only the options set are visited: the presence bits
+     * of the result are masked with the bits of the options requiring
+     * values.  All errors are reported together.  Options, for which
+     * an error has already been recorded, are skipped.
+     *
+     * @throws InvalidOptionException
+     */
+    void check (Result result)
+    {
+        CheckEvent event = new CheckEvent();
+        event.begin();
+        List<ParseError> errors = null;
+        long[] present = result.present;
+        for (int w = 0; w < present.length; w++)
+            for (long bits = present[w] & needs_values[w];
+                 bits != 0;
+                 bits &= bits - 1)
+            {
+                Option option =
+                    options[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                if (result.failed(option))
+                    continue;
+                for (int v = 0; v < option.required_values; v++)
+                    if (!result.has_value(option, v))
+                    {
+                        if (errors == null)
+                            errors = new ArrayList<ParseError>();
+                        errors.add (ParseError.missing_value
+                                    (option.id(),
+                                     option.required_values, v));
+                    }
+            }
+        int missing = errors == null ? 0 : errors.size();
+        for (Group group : groups)
+        {
+            ParseError error = group.check (present, options);
+            if (error != null)
+            {
+                if (errors == null)
+                    errors = new ArrayList<ParseError>();
+                errors.add (error);
+            }
+        }
+        if (event.shouldCommit())
+        {
+            event.missing = missing;
+            event.commit();
+        }
+        if (errors != null)
+            result.errors (errors);
+        Result command = result.command_result();
+        if (command != null)
+            command.spec.check (command);
+    }
+
+    /**
+     * Returns the usage text.  The text is rendered once and cached.
+     *
+     * @return the usage text
+     */
+    public String render_usage ()
+    {
+        String text = usage;
+        if (text == null)
+            usage = text = cached_usage != null
+                ? cached_usage.toString()
+                : Usage.render (this, 0);
+        return text;
+    }
+
+    /**
+     * Returns the usage text with the descriptions wrapped to fit the
+     * width of a terminal.  The text is rendered once per width and
+     * cached.
+     *
+     * @param width the number of columns or zero for no wrapping
+     *
+     * @return the usage text
+     */
+    public String render_usage (int width)
+    {
+        if (width <= 0)
+            return render_usage();
+        String text = wrapped_usage.get(width);
+        if (text == null)
+        {
+            text = Usage.render (this, width);
+            wrapped_usage.putIfAbsent (width, text);
+        }
+        return text;
+    }
+
+    /**
+     * Print the usage text to the specified print stream.  The text is
+     * written with a single call.
+     *
+     * @param out the output print stream
+     */
+    public void print_usage (PrintStream out)
+    {
+        out.print (render_usage());
+    }
+
+    /**
+     * Print the usage text wrapped to the width to the specified print
+     * stream.
+     *
+     * @param out   the output print stream
+     * @param width the number of columns or zero for no wrapping
+     */
+    public void print_usage (PrintStream out, int width)
+    {
+        out.print (render_usage(width));
+    }
+
+    public String toString()
+    {
+        return Arrays.toString(options);
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * A binary file caching a compiled spec.  Tools with very large specs
+ * can load the spec from the cache at startup instead of defining and
+ * compiling all options again.  The file contains the options, the
+ * index of the long names and the rendered usage text.  The file is
+ * mapped into memory and the index and the usage text are used
+ * directly from the mapped file, so neither has to be built.  The
+ * groups of options, the sources of values and the checks of the
+ * values are stored with the options.
+ * <p>
+ * The file starts with a magic number, the format version and a
+ * version chosen by the tool, followed by a checksum of the rest.  The
+ * tool must change its version, whenever the option definitions
+ * change, for example by using a hash of the definitions or the
+ * version of the tool.  A file with another version or a wrong
+ * checksum is ignored and rewritten.
+ * <p>
+ * Specs with commands or handlers can not be cached, because the
+ * suppliers of the commands and the handlers are code.
+ */
+public final class SpecCache
+{
+    private SpecCache () {}
+
+    private static final int MAGIC  = 0x535a494f; // "SZIO"
+    private static final int FORMAT = 5;
+
+    /** The size of the header: magic, format, version and checksum. */
+    private static final int HEADER = 4 + 4 + 8 + 8;
+
+    /**
+     * Returns the spec cached in the file or the spec compiled from
+     * the supplied options.  In the second case the spec is written to
+     * the file for the next time.  Failing to write the file is not an
+     * error, because the spec is usable anyway.
+     *
+     * @param file    the cache file
+     * @param version the version of the option definitions
+     * @param options the supplier of the options, called only if the
+     *                cache is missing or stale
+     *
+     * @return the spec
+     */
+    public static Spec load (Path file, long version,
+                             Supplier<Options> options)
+    {
+        Spec spec = read (file, version);
+        if (spec != null)
+            return spec;
+        spec = options.get().compile();
+        if (spec.commands.isEmpty() && spec.handlers == null)
+            try
+            {
+                write (spec, file, version);
+            }
+            catch (IOException e)
+            {
+                // The cache is only an optimization.
+            }
+        return spec;
+    }
+
+    /**
+     * Reads a spec from the file.  The file is mapped into memory.
+     *
+     * @param file    the cache file
+     * @param version the expected version of the option definitions
+     *
+     * @return the spec or null if the file is missing, has another
+     *         version or is damaged
+     */
+    public static Spec read (Path file, long version)
+    {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open (file))
+        {
+            buffer = channel.map (FileChannel.MapMode.READ_ONLY,
+                                  0, channel.size());
+        }
+        catch (IOException e)
+        {
+            // The file is missing or can not be read.
+            return null;
+        }
+        if (buffer.remaining() < HEADER ||
+            buffer.getInt() != MAGIC ||
+            buffer.getInt() != FORMAT ||
+            buffer.getLong() != version)
+            return null;
+        long checksum = buffer.getLong();
+        CRC32C crc = new CRC32C();
+        crc.update (buffer.duplicate());
+        if (crc.getValue() != checksum)
+            return null;
+        try
+        {
+            return decode (buffer);
+        }
+        catch (RuntimeException e)
+        {
+            // Damaged despite the checksum.
+            return null;
+        }
+    }
+
+    /**
+     * Writes the spec to the file.  The file is written to a temporary
+     * file first and then moved, so that a concurrent reader never
+     * sees a partial file.
+     *
+     * @param spec    the spec
+     * @param file    the cache file
+     * @param version the version of the option definitions
+     *
+     * @throws IOException if the file can not be written
+     * @throws InvalidOptionException if the spec has commands or
+     *                                handlers
+     */
+    public static void write (Spec spec, Path file, long version)
+        throws IOException
+    {
+        if (!spec.commands.isEmpty())
+            throw new InvalidOptionException
+                ("Specs with commands can not be cached");
+        if (spec.handlers != null)
+            throw new InvalidOptionException
+                ("Specs with handlers can not be cached");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream (bytes);
+        encode (spec, out);
+        out.flush();
+        byte[] payload = bytes.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update (payload);
+        ByteBuffer header = ByteBuffer.allocate (HEADER);
+        header.putInt (MAGIC).putInt (FORMAT).putLong (version)
+            .putLong (crc.getValue()).flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile
+            (directory, file.getFileName().toString(), ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open
+                 (temporary, StandardOpenOption.WRITE))
+            {
+                channel.write (new ByteBuffer[] {
+                        header, ByteBuffer.wrap (payload) });
+            }
+            Files.move (temporary, file,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists (temporary);
+        }
+    }
+
+    /**
+     * Writes the spec.  The options are written as one section with
+     * the strings encoded in UTF-8, which is copied out of the file in
+     * one piece.  The index of the long names and the usage text
+     * follow and are used from the file.
+     */
+    private static void encode (Spec spec, DataOutputStream out)
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream section = new DataOutputStream (bytes);
+        write_strings (spec.about_text, section);
+        write_strings (spec.usage_text, section);
+        section.writeInt (spec.options.length);
+        for (Option option : spec.options)
+        {
+            section.writeInt (option.flag == null ? -1 : option.flag);
+            write_string (option.name, section);
+            write_string (option.description, section);
+            section.writeInt (option.required_values);
+            write_strings (option.default_values, section);
+            section.writeInt (option.repeat);
+            section.writeBoolean (option.variadic);
+            Validator[] validators = spec.validators == null
+                ? null
+                : spec.validators[option.ordinal];
+            section.writeInt (validators == null ? 0 : validators.length);
+            if (validators != null)
+                for (Validator validator : validators)
+                {
+                    section.writeInt (validator.kind.ordinal());
+                    write_strings (validator.arguments, section);
+                }
+        }
+        section.writeInt (spec.groups.length);
+        for (Group group : spec.groups)
+        {
+            section.writeInt (group.kind.ordinal());
+            write_string (group.name, section);
+            section.writeInt (group.members.length);
+            for (int member : group.members)
+                section.writeInt (member);
+        }
+        Sources sources = spec.sources;
+        section.writeBoolean (sources != null);
+        if (sources != null)
+        {
+            write_strings (sources.variables, section);
+            write_string (sources.config == null
+                          ? null : sources.config.toString(), section);
+        }
+        section.flush();
+        out.writeInt (bytes.size());
+        bytes.writeTo (out);
+        spec.long_names.write (out);
+        String usage = spec.render_usage();
+        out.writeInt (usage.length());
+        out.writeChars (usage);
+    }
+
+    private static Spec decode (ByteBuffer in)
+    {
+        byte[] bytes = new byte[in.getInt()];
+        in.get (bytes);
+        ByteBuffer section = ByteBuffer.wrap (bytes);
+        String[] about_text = read_strings (section);
+        String[] usage_text = read_strings (section);
+        Option[] options = new Option[section.getInt()];
+        List<Validator[]> validators =
+            Arrays.asList(new Validator[options.length][]);
+        int slot = 0;
+        for (int o = 0; o < options.length; o++)
+        {
+            int    flag        = section.getInt();
+            String name        = read_string (section);
+            String description = read_string (section);
+            int    values      = section.getInt();
+            String[] defaults  = read_strings (section);
+            int      repeat    = section.getInt();
+            boolean  variadic  = section.get() != 0;
+            int      checks    = section.getInt();
+            if (checks > 0)
+            {
+                Validator[] option_validators = new Validator[checks];
+                for (int c = 0; c < checks; c++)
+                    option_validators[c] = new Validator
+                        (Validator.Kind.values()[section.getInt()],
+                         read_strings(section));
+                validators.set (o, option_validators);
+            }
+            options[o] = new Option (o, slot, repeat, variadic,
+                                     flag < 0 ? null : (Character)(char)flag,
+                                     name, description, values,
+                                     defaults);
+            slot += values;
+        }
+        List<Group> groups = new ArrayList<Group>();
+        for (int g = section.getInt(); g > 0; g--)
+        {
+            Group.Kind kind = Group.Kind.values()[section.getInt()];
+            String     name = read_string (section);
+            int[]   members = new int[section.getInt()];
+            for (int m = 0; m < members.length; m++)
+                members[m] = section.getInt();
+            groups.add (new Group (kind, name, members));
+        }
+        Sources sources = null;
+        if (section.get() != 0)
+        {
+            String[] variables = read_strings (section);
+            String   config    = read_string (section);
+            sources = new Sources (variables,
+                                   config == null ? null : Paths.get(config));
+        }
+        LongNames long_names = new LongNames (options, in);
+        // The usage text is copied out of the file only if printed.
+        int length = in.getInt();
+        CharBuffer usage = in.asCharBuffer();
+        usage.limit (length);
+        return new Spec (options, long_names,
+                         Collections.<Command>emptyList(), groups,
+                         Arrays.asList(new Handler[options.length]), false,
+                         sources, validators, about_text, usage_text,
+                         usage);
+    }
+
+    private static void write_string (String s, DataOutputStream out)
+        throws IOException
+    {
+        if (s == null)
+            out.writeInt (-1);
+        else
+        {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt (bytes.length);
+            out.write (bytes);
+        }
+    }
+
+    private static void write_strings (String[] strings,
+                                       DataOutputStream out)
+        throws IOException
+    {
+        if (strings == null)
+            out.writeInt (-1);
+        else
+        {
+            out.writeInt (strings.length);
+            for (String s : strings)
+                write_string (s, out);
+        }
+    }
+
+    /** Reads a string from a buffer wrapping an array. */
+    private static String read_string (ByteBuffer in)
+    {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        int position = in.position();
+        in.position (position + length);
+        return new String (in.array(), position, length,
+                           StandardCharsets.UTF_8);
+    }
+
+    private static String[] read_strings (ByteBuffer in)
+    {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        String[] strings = new String[length];
+        for (int i = 0; i < length; i++)
+            strings[i] = read_string (in);
+        return strings;
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the long names closest to an undefined long option or the
+ * commands closest to an undefined command for the "did you mean"
+ * hint of the error message.  Computing the edit
+ * distance to every name is too slow for specs with thousands of
+ * options, so the names are indexed by their trigrams, the substrings
+ * of three characters of the name padded with two sentinels at each
+ * end.  An edit changes at most three trigrams, so a name within the
+ * edit distance k of a word shares all but 3k trigrams of the word.
+ * Counting the shared trigrams with the posting lists of the word's
+ * trigrams leaves only a few candidates, for which the distance is
+ * computed.
+ */
+final class Suggestions
+{
+    /** The maximal number of suggestions. */
+    static final int MAX_SUGGESTIONS = 3;
+
+    private static final int Q = 3;
+
+    private static final char PAD = '\0';
+
+    private static final String[] NONE = new String[0];
+
+    private static final int[] EMPTY = new int[0];
+
+    /** The long names. */
+    private final String[] names;
+
+    /** The indexes of the names containing a trigram. */
+    private final Map<Long,int[]> postings;
+
+    /**
+     * @param names the distinct names
+     */
+    Suggestions (String[] names)
+    {
+        this.names = names.clone();
+
+        Map<Long,int[]> postings = new HashMap<Long,int[]>();
+        Map<Long,Integer> sizes  = new HashMap<Long,Integer>();
+        for (int n = 0; n < this.names.length; n++)
+            for (long gram : trigrams(this.names[n]))
+            {
+                int[] list = postings.get(gram);
+                int size = list == null ? 0 : sizes.get(gram);
+                if (list == null)
+                    list = new int[2];
+                else if (size == list.length)
+                    list = Arrays.copyOf (list, size * 2);
+                list[size] = n;
+                postings.put (gram, list);
+                sizes.put (gram, size + 1);
+            }
+        for (Map.Entry<Long,int[]> entry : postings.entrySet())
+            entry.setValue (Arrays.copyOf (entry.getValue(),
+                                           sizes.get(entry.getKey())));
+        this.postings = postings;
+    }
+
+    /**
+     * Returns the distinct trigrams of the padded word, each packed
+     * into a long.
+     */
+    private static long[] trigrams (String word)
+    {
+        int count = word.length() + Q - 1;
+        long[] grams = new long[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++)
+        {
+            long gram = 0;
+            for (int j = i - Q + 1; j <= i; j++)
+                gram = gram << 16 |
+                    (j < 0 || j >= word.length() ? PAD : word.charAt(j));
+            boolean seen = false;
+            for (int k = 0; k < distinct && !seen; k++)
+                seen = grams[k] == gram;
+            if (!seen)
+                grams[distinct++] = gram;
+        }
+        return Arrays.copyOf (grams, distinct);
+    }
+
+    /**
+     * Returns the maximal edit distance of a suggestion for a word of
+     * the length.  Short words allow one typo, long words up to three.
+     */
+    static int limit (int length)
+    {
+        return Math.max (1, Math.min (3, (length + 3) / 4));
+    }
+
+    /**
+     * Returns the Levenshtein distance of the strings.  The row must
+     * have at least one element more than b.
+     */
+    static int distance (String a, String b, int[] row)
+    {
+        int m = b.length();
+        for (int j = 0; j <= m; j++)
+            row[j] = j;
+        for (int i = 1; i <= a.length(); i++)
+        {
+            char c = a.charAt(i - 1);
+            int diagonal = row[0];
+            row[0] = i;
+            for (int j = 1; j <= m; j++)
+            {
+                int above = row[j];
+                int cost  = c == b.charAt(j - 1) ? 0 : 1;
+                row[j] = Math.min (Math.min (row[j - 1], above) + 1,
+                                   diagonal + cost);
+                diagonal = above;
+            }
+        }
+        return row[m];
+    }
+
+    /**
+     * Collects the suggestions in order of their distance.  Names with
+     * the same distance are sorted alphabetically.
+     */
+    private static final class Collector
+    {
+        final String   word;
+        final int[]    row;
+        final List<String>  names     = new ArrayList<String>();
+        final List<Integer> distances = new ArrayList<Integer>();
+        int limit;
+
+        Collector (String word)
+        {
+            this.word  = word;
+            this.row   = new int[word.length() + 1];
+            this.limit = limit (word.length());
+        }
+
+        void offer (String name)
+        {
+            // The distance is at least the difference of the lengths.
+            if (Math.abs (name.length() - word.length()) > limit)
+                return;
+            int distance = distance (name, word, row);
+            if (distance > limit)
+                return;
+            int i = 0;
+            while (i < names.size() &&
+                   (distances.get(i) < distance ||
+                    distances.get(i) == distance &&
+                    names.get(i).compareTo(name) < 0))
+                i++;
+            if (i >= MAX_SUGGESTIONS)
+                return;
+            names.add (i, name);
+            distances.add (i, distance);
+            if (names.size() > MAX_SUGGESTIONS)
+            {
+                names.remove (MAX_SUGGESTIONS);
+                distances.remove (MAX_SUGGESTIONS);
+            }
+            // With enough suggestions only closer names are of
+            // interest.
+            if (names.size() == MAX_SUGGESTIONS)
+                limit = distances.get(MAX_SUGGESTIONS - 1);
+        }
+
+        String[] result ()
+        {
+            return names.toArray(new String[names.size()]);
+        }
+    }
+
+    /**
+     * Returns the long names closest to the word, which is the name of
+     * an undefined long option without the leading hyphens.
+     *
+     * @return up to {@link #MAX_SUGGESTIONS} names, the closest first
+     */
+    String[] suggest (String word)
+    {
+        if (word.isEmpty())
+            return NONE;
+        Collector collector = new Collector (word);
+        long[] grams = trigrams (word);
+        int required = grams.length - Q * collector.limit;
+        if (required <= 0)
+        {
+            // The word is too short to filter by trigrams.
+            for (String name : names)
+                collector.offer (name);
+            return collector.result();
+        }
+        // A name sharing the required number of trigrams appears in at
+        // least one of the shortest grams - required + 1 posting
+        // lists.  Only these admit candidates.  The longer lists only
+        // count the trigrams of the candidates, and the longest, which
+        // are longer than all admitting lists together, are searched
+        // for the candidates still in reach.  The posting lists are
+        // sorted.
+        int[][] lists = new int[grams.length][];
+        for (int g = 0; g < grams.length; g++)
+        {
+            int[] list = postings.getOrDefault(grams[g], EMPTY);
+            int k = g;
+            for (; k > 0 && lists[k - 1].length > list.length; k--)
+                lists[k] = lists[k - 1];
+            lists[k] = list;
+        }
+        int admitting = grams.length - required + 1;
+        int total = 0;
+        for (int g = 0; g < admitting; g++)
+            total += lists[g].length;
+        int counting = grams.length;
+        while (counting > admitting && lists[counting - 1].length > total)
+            counting--;
+        // The candidates are counted in an open addressing table with
+        // room for every admitted posting, so that the cost depends on
+        // the postings and not on the number of names.
+        int capacity = 4;
+        while (capacity < total * 2)
+            capacity <<= 1;
+        int mask  = capacity - 1;
+        int shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        int[] keys   = new int[capacity];
+        int[] shared = new int[capacity];
+        for (int g = 0; g < counting; g++)
+            for (int n : lists[g])
+            {
+                int h = n * 0x9e3779b9 >>> shift;
+                // The keys are the indexes plus one, zero is empty.
+                while (keys[h] != 0 && keys[h] != n + 1)
+                    h = (h + 1) & mask;
+                if (keys[h] != 0)
+                    shared[h]++;
+                else if (g < admitting)
+                {
+                    keys[h] = n + 1;
+                    shared[h] = 1;
+                }
+            }
+        for (int h = 0; h < capacity; h++)
+        {
+            if (keys[h] == 0)
+                continue;
+            int n = keys[h] - 1;
+            int missing = required - shared[h];
+            if (missing > grams.length - counting)
+                continue;
+            for (int g = counting; missing > 0 && g < grams.length; g++)
+                if (Arrays.binarySearch (lists[g], n) >= 0)
+                    missing--;
+            if (missing <= 0)
+                collector.offer (names[n]);
+        }
+        return collector.result();
+    }
+
+    /**
+     * Returns the names closest to the word by comparing the word with
+     * every name.  The result is the same as of {@link #suggest}.  This
+     * is used by the generated parsers, which do not keep an index.
+     */
+    static String[] nearest (String[] names, String word)
+    {
+        if (word.isEmpty())
+            return NONE;
+        Collector collector = new Collector (word);
+        for (String name : names)
+            collector.offer (name);
+        return collector.result();
+    }
+
+    /**
+     * Returns the flag differing from the undefined flag only in case
+     * or null if there is none.
+     *
+     * @param flags all defined flags
+     */
+    static Character flag (CharSequence flags, char flag)
+    {
+        char other = Character.isUpperCase(flag)
+            ? Character.toLowerCase(flag)
+            : Character.toUpperCase(flag);
+        if (other == flag)
+            return null;
+        for (int i = 0; i < flags.length(); i++)
+            if (flags.charAt(i) == other)
+                return other;
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.util.Iterator;
+
+/**
+ * The source of the arguments for the parser.  The parser reads the
+ * arguments by index in ascending order and looks at most one argument
+ * ahead.
+ */
+interface Tokens
+{
+    /**
+     * Returns the argument at the index or null after the last
+     * argument.  The argument may be a view, which is valid only until
+     * the argument after the next has been read.
+     */
+    CharSequence get (int index);
+
+    /**
+     * Returns the number of arguments or, if they are read one by one,
+     * the number read so far.
+     */
+    int count ();
+
+    /**
+     * The arguments of an array.
+     */
+    final class Array implements Tokens
+    {
+        private final String[] arguments;
+
+        Array (String[] arguments)
+        {
+            this.arguments = arguments;
+        }
+
+        public CharSequence get (int index)
+        {
+            return index < arguments.length ? arguments[index] : null;
+        }
+
+        public int count ()
+        {
+            return arguments.length;
+        }
+    }
+
+    /**
+     * The arguments of an iterator.  Only the current and the next
+     * argument are kept.
+     */
+    final class Stream implements Tokens
+    {
+        private final Iterator<String> arguments;
+        private final String[] window = new String[2];
+        private int read = 0;
+
+        Stream (Iterator<String> arguments)
+        {
+            this.arguments = arguments;
+        }
+
+        public CharSequence get (int index)
+        {
+            while (read <= index)
+            {
+                if (!arguments.hasNext())
+                    return null;
+                window[read & 1] = arguments.next();
+                read++;
+            }
+            if (index < read - 2)
+                throw new IllegalStateException
+                    ("Argument " + index + " has already been discarded");
+            return window[index & 1];
+        }
+
+        public int count ()
+        {
+            return read;
+        }
+    }
+}
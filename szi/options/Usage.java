@@ -0,0 +1,188 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+/**
+ * Renders the usage text of a spec into a string.
+ */
+final class Usage
+{
+    private Usage () {}
+
+    /** The smallest width of the description column when wrapping. */
+    static final int MIN_DESCRIPTION = 20;
+
+    private static void pad (StringBuilder out, int n)
+    {
+        for (int i = 0; i < n; i++)
+            out.append(' ');
+    }
+
+    /**
+     * Renders the usage text.  If the width is greater than zero, the
+     * descriptions are wrapped at spaces to fit the width.  The
+     * continuation lines are indented to the description column.
+     */
+    static String render (Spec spec, int width)
+    {
+        UsageEvent event = new UsageEvent();
+        event.begin();
+        String nl = System.lineSeparator();
+        StringBuilder out = new StringBuilder();
+        // Display header
+        if (spec.about_text != null)
+            for (String line : spec.about_text)
+                out.append(line).append(nl);
+        if (spec.usage_text != null)
+            if (spec.usage_text.length == 1)
+                out.append("Usage: ").append(spec.usage_text[0]).append(nl);
+            else
+            {
+                out.append("Usage:").append(nl);
+                for (String line : spec.usage_text)
+                    out.append("  ").append(line).append(nl);
+            }
+        // Display options
+        out.append("Options:").append(nl);
+        int max_name = 0;
+        int max_vals = 0;
+        for (Option option : spec.options)
+            if (option.name != null)
+            {
+                if (option.name.length() > max_name)
+                    max_name = option.name.length();
+                if (option.default_values != null &&
+                    option.required_values > max_vals)
+                    max_vals = option.required_values;
+                if (option.variadic && max_vals < 2)
+                    max_vals = 2;
+            }
+        for (Option option : spec.options)
+        {
+            int start = out.length();
+            out.append("  ");
+            // Display short option
+            if (option.flag != null)
+                out.append('-').append(option.flag);
+            else
+                out.append("  ");
+            if (option.flag != null && option.name != null)
+                out.append(',');
+            else
+                out.append(' ');
+            // Display long option
+            if (option.name != null)
+            {
+                out.append(" --").append(option.name);
+                pad (out, max_name - option.name.length());
+            }
+            else
+            {
+                out.append("   ");
+                pad (out, max_name);
+            }
+            for (int i = 0; i < Math.min(8, max_vals); i++)
+                if (option.variadic && i < 2)
+                    out.append(i == 0 ? " A" : "..");
+                else if (option.required_values > 8 && i > 6)
+                    out.append("..");
+                else
+                    if (i < option.required_values)
+                        out.append(' ').append((char)((int)'A' + i));
+                    else
+                        out.append("  ");
+            out.append("  ");
+            int column = out.length() - start;
+            // Display description.
+            StringBuilder text = new StringBuilder (option.description);
+            // Display default values.
+            if (option.default_values != null &&
+                option.default_values.length > 0)
+            {
+                text.append(" (default:");
+                for (String value : option.default_values)
+                    text.append(' ').append(value);
+                text.append(')');
+            }
+            if (width > 0 && width - column >= MIN_DESCRIPTION)
+                wrap (out, text, column, width - column, nl);
+            else
+                out.append(text);
+            out.append(nl);
+        }
+        // Display commands.  Their options are not loaded.
+        if (!spec.commands.isEmpty())
+        {
+            out.append("Commands:").append(nl);
+            int max_command = 0;
+            for (Command command : spec.commands.values())
+                max_command = Math.max(max_command, command.name.length());
+            for (Command command : spec.commands.values())
+            {
+                int start = out.length();
+                out.append("  ").append(command.name);
+                pad (out, max_command - command.name.length());
+                out.append("  ");
+                int column = out.length() - start;
+                if (width > 0 && width - column >= MIN_DESCRIPTION)
+                    wrap (out, command.description, column, width - column,
+                          nl);
+                else
+                    out.append(command.description);
+                out.append(nl);
+            }
+        }
+        if (event.shouldCommit())
+        {
+            event.width  = width;
+            event.length = out.length();
+            event.commit();
+        }
+        return out.toString();
+    }
+
+    private static void wrap (StringBuilder out, CharSequence text,
+                              int column, int width, String nl)
+    {
+        int line = 0;
+        int i = 0;
+        while (i < text.length())
+        {
+            int end = Math.min(i + width, text.length());
+            if (end < text.length())
+            {
+                int space = end;
+                while (space > i && text.charAt(space) != ' ')
+                    space--;
+                if (space > i)
+                    end = space;
+            }
+            if (line++ > 0)
+            {
+                out.append(nl);
+                pad (out, column);
+            }
+            out.append(text, i, end);
+            i = end;
+            while (i < text.length() && text.charAt(i) == ' ')
+                i++;
+        }
+    }
+}
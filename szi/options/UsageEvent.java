@@ -0,0 +1,45 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for rendering the usage text.  Cached texts
+ * are not rendered again and do not create events.
+ */
+@Name ("szi.options.Usage")
+@Label ("Render Usage")
+@Category ("Options")
+@Description ("Rendering the usage text")
+final class UsageEvent extends Event
+{
+    @Label ("Width")
+    @Description ("The width to wrap to or zero")
+    int width;
+
+    @Label ("Length")
+    @Description ("The number of characters rendered")
+    int length;
+}
@@ -0,0 +1,183 @@
+/**
+ * Parse command line arguments.
+ *
+ * Copyright (C) 2013  Sascha Ziemann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package szi.options;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A declarative check of the values of an option.  The check is
+ * defined by its kind and arguments as strings, so that it can be
+ * stored in a spec cache, and compiled once when it is created: the
+ * bounds of a range are parsed, a pattern is compiled and the allowed
+ * values are put into a hash set.  The values are checked while the
+ * arguments are parsed, without copying them where possible.
+ */
+final class Validator
+{
+    enum Kind
+    {
+        /** The value is an integer between two bounds. */
+        INTEGER_RANGE,
+        /** The value is a number between two bounds. */
+        NUMBER_RANGE,
+        /** The value matches a regular expression. */
+        PATTERN,
+        /** The value is one of a set of values. */
+        ALLOWED,
+        /** The value is a path passing checks. */
+        PATH
+    }
+
+    final Kind     kind;
+    final String[] arguments;
+    private final long        min;
+    private final long        max;
+    private final double      low;
+    private final double      high;
+    private final Pattern     pattern;
+    private final Set<String> allowed;
+    private final PathCheck[] checks;
+    private final String      description;
+
+    /**
+     * @throws InvalidOptionException if the arguments are invalid
+     */
+    Validator (Kind kind, String... arguments)
+    {
+        this.kind      = kind;
+        this.arguments = arguments;
+        long   min = 0, max = 0;
+        double low = 0, high = 0;
+        Pattern pattern = null;
+        Set<String> allowed = null;
+        PathCheck[] checks = null;
+        try
+        {
+            switch (kind)
+            {
+            case INTEGER_RANGE:
+                min = Long.parseLong (arguments[0]);
+                max = Long.parseLong (arguments[1]);
+                description = "an integer from " + min + " to " + max;
+                break;
+            case NUMBER_RANGE:
+                low  = Double.parseDouble (arguments[0]);
+                high = Double.parseDouble (arguments[1]);
+                description = "a number from " + low + " to " + high;
+                break;
+            case PATTERN:
+                pattern = Pattern.compile (arguments[0]);
+                description = "matching " + arguments[0];
+                break;
+            case ALLOWED:
+                allowed = new HashSet<String> (Arrays.asList(arguments));
+                description = "one of " + String.join(", ", arguments);
+                break;
+            default:
+                checks = new PathCheck[arguments.length];
+                for (int c = 0; c < checks.length; c++)
+                    checks[c] = PathCheck.valueOf (arguments[c]);
+                description = "a path";
+            }
+        }
+        catch (NumberFormatException | PatternSyntaxException e)
+        {
+            throw new InvalidOptionException
+                ("Invalid check of values: " + e.getMessage());
+        }
+        this.min     = min;
+        this.max     = max;
+        this.low     = low;
+        this.high    = high;
+        this.pattern = pattern;
+        this.allowed = allowed;
+        this.checks  = checks;
+    }
+
+    /**
+     * Checks the value starting at the offset in the argument.
+     *
+     * @return null if the value is valid or the description of a valid
+     *         value
+     */
+    String check (CharSequence argument, int offset)
+    {
+        int end = argument.length();
+        switch (kind)
+        {
+        case INTEGER_RANGE:
+            try
+            {
+                long value = Long.parseLong (argument, offset, end, 10);
+                return value >= min && value <= max ? null : description;
+            }
+            catch (NumberFormatException e)
+            {
+                return description;
+            }
+        case NUMBER_RANGE:
+            try
+            {
+                double value = Double.parseDouble (text(argument, offset));
+                return value >= low && value <= high ? null : description;
+            }
+            catch (NumberFormatException e)
+            {
+                return description;
+            }
+        case PATTERN:
+            return pattern.matcher(argument).region(offset, end).matches()
+                ? null
+                : description;
+        case ALLOWED:
+            return allowed.contains (text(argument, offset))
+                ? null
+                : description;
+        default:
+            Path path;
+            try
+            {
+                path = Paths.get (text(argument, offset));
+            }
+            catch (InvalidPathException e)
+            {
+                return description;
+            }
+            for (PathCheck check : checks)
+                if (!check.test(path))
+                    return check.description;
+            return null;
+        }
+    }
+
+    static String text (CharSequence argument, int offset)
+    {
+        return offset == 0
+            ? argument.toString()
+            : argument.subSequence(offset, argument.length()).toString();
+    }
+}